@@ -0,0 +1,71 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Entity;
+import edu.missouriwestern.csmp.gg.base.Event;
+import edu.missouriwestern.csmp.gg.base.Game;
+import edu.missouriwestern.csmp.gg.base.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/** game with no rules of its own, used to exercise the library in benchmarks */
+public class BenchmarkGame extends Game {
+
+	/** plain entity with no behavior */
+	public static class Thing extends Entity {
+		public Thing(Game game, Map<String,String> properties) {
+			super(game, properties);
+		}
+
+		@Override
+		public String getType() { return "thing"; }
+	}
+
+	/** player that discards every event sent to it */
+	public static class Spectator extends Player {
+		public Spectator(String id, Game game) {
+			super(id, game);
+		}
+
+		@Override
+		public void accept(Event event) { }
+	}
+
+	/** adds a board of the specified size where every tile is floor */
+	public Board addOpenBoard(String name, int width, int height) {
+		return addBoard(name, openMap(width, height));
+	}
+
+	/** adds a board built from a char map using '.' for floor and '#' for impassable, opaque wall tiles */
+	public Board addBoard(String name, String charMap) {
+		var board = new Board(Map.of('.', "floor", '#', "wall"), this, name, charMap,
+				Map.of('#', Map.of("passable", "false", "opaque", "true")), new HashMap<>());
+		addBoard(name, board);
+		return board;
+	}
+
+	/** creates a char map of the specified size containing only floor tiles */
+	public static String openMap(int width, int height) {
+		return generateMap(width, height, 0, 0);
+	}
+
+	/** creates a char map of the specified size with walls around the edge and walls scattered inside.
+	 * The same arguments always produce the same map.
+	 * @param wallDensity fraction of interior cells that are walls
+	 * @param seed seed for choosing which interior cells are walls
+	 */
+	public static String generateMap(int width, int height, double wallDensity, long seed) {
+		var random = new SplittableRandom(seed);
+		var sb = new StringBuilder((width + 1) * height);
+		for(int r = 0; r < height; r++) {
+			for(int c = 0; c < width; c++) {
+				boolean edge = wallDensity > 0 && (r == 0 || c == 0 || r == height - 1 || c == width - 1);
+				sb.append(edge || random.nextDouble() < wallDensity ? '#' : '.');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,33 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/** runs the benchmarks and writes a JSON report named after the library version, so reports from
+ * different releases can be compared side by side (for instance with jmh.morethan.io).
+ * <p>
+ * Usage: <tt>java -cp target/benchmarks.jar edu.missouriwestern.csmp.gg.benchmarks.BenchmarkRunner
+ * [version] [regex]</tt>
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		var version = args.length > 0 ? args[0] : "SNAPSHOT";
+		var include = args.length > 1 ? args[1] : BenchmarkRunner.class.getPackageName() + ".*";
+		var reports = new File("reports");
+		reports.mkdirs();
+
+		var options = new OptionsBuilder()
+				.include(include)
+				.shouldFailOnError(true)
+				.jvmArgsAppend("-Xms2g", "-Xmx2g", "-XX:+UseParallelGC")  // keep heap sizing out of the results
+				.resultFormat(ResultFormatType.JSON)
+				.result(new File(reports, "2dapi-" + version + ".json").getPath())
+				.build();
+		new Runner(options).run();
+	}
+}
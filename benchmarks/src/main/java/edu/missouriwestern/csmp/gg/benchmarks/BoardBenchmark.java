@@ -0,0 +1,59 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Direction;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** measures tile lookups and board rendering on generated maps */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+	@Param({"64", "512"})
+	int size;
+
+	Board board;
+	SplittableRandom random;
+	Tile walker;
+	static final Direction[] DIRECTIONS = Direction.values();
+
+	@Setup
+	public void setup() {
+		var game = new BenchmarkGame();
+		board = game.addBoard("bench", BenchmarkGame.generateMap(size, size, 0.2, 42));
+		random = new SplittableRandom(42);
+		walker = board.getTile(1, 1);
+	}
+
+	@Benchmark
+	public Tile getTile() {
+		return board.getTile(random.nextInt(size), random.nextInt(size));
+	}
+
+	/** random walk that stays on the board */
+	@Benchmark
+	public Tile getAdjacentTile() {
+		var next = board.getAdjacentTile(walker, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+		if(next != null)
+			walker = next;
+		return walker;
+	}
+
+	@Benchmark
+	public String getTileMap() {
+		return board.getTileMap();
+	}
+
+	@Benchmark
+	public String boardToString() {
+		return board.toString();
+	}
+}
@@ -0,0 +1,74 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** compares building a large board from a string, which creates every tile, with chunked boards that
+ * stream or memory-map the map and create tiles as they are used */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BoardLoadingBenchmark {
+
+	@Param({"1024", "2048"})
+	int size;
+
+	static final Map<Character,String> TYPES = Map.of('.', "floor", '#', "wall");
+	static final Map<Character,Map<String,String>> TYPE_PROPERTIES = Map.of('#', Map.of("passable", "false"));
+
+	String charMap;
+	Path file;
+	BenchmarkGame game;
+	Board chunked;
+	SplittableRandom random;
+
+	@Setup
+	public void setup() throws IOException {
+		charMap = BenchmarkGame.generateMap(size, size, 0.2, 42);
+		file = Files.createTempFile("board", ".map");
+		Files.writeString(file, charMap);
+		game = new BenchmarkGame();
+		chunked = new Board(TYPES, game, "chunked", file, TYPE_PROPERTIES, Map.of());
+		chunked.setMaxLoadedChunks(64);
+		random = new SplittableRandom(42);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Board loadFromString() {
+		return new Board(TYPES, game, "dense", charMap, TYPE_PROPERTIES, Map.of());
+	}
+
+	@Benchmark
+	public Board loadFromReader() throws IOException {
+		return new Board(TYPES, game, "streamed", new StringReader(charMap), TYPE_PROPERTIES, Map.of());
+	}
+
+	@Benchmark
+	public Board loadMapped() throws IOException {
+		return new Board(TYPES, game, "mapped", file, TYPE_PROPERTIES, Map.of());
+	}
+
+	/** lookups spread over the whole board, so chunks are created and let go again */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Tile getTileChunked() {
+		return chunked.getTile(random.nextInt(size), random.nextInt(size));
+	}
+}
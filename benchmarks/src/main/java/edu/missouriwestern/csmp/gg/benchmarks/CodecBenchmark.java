@@ -0,0 +1,67 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import edu.missouriwestern.csmp.gg.base.BinaryEventCodec;
+import edu.missouriwestern.csmp.gg.base.Event;
+import edu.missouriwestern.csmp.gg.base.EventRecord;
+import edu.missouriwestern.csmp.gg.base.JsonSerialization;
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** compares encoding and decoding a move event in binary and JSON form */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+	Event event;
+	BinaryEventCodec.Encoder encoder;
+	ByteBuffer buffer;
+	byte[] binary;
+	String json;
+
+	@Setup
+	public void setup() {
+		var game = new BenchmarkGame();
+		var board = game.addOpenBoard("bench", 64, 64);
+		var entity = new BenchmarkGame.Thing(game, Map.of());
+		game.moveEntity(entity, board.getTile(10, 12));
+		event = new EntityMovedEvent(entity, board.getTile(10, 11), board.getTile(10, 12));
+		encoder = new BinaryEventCodec.Encoder();
+		buffer = ByteBuffer.allocate(1024);
+		binary = encoder.encode(event);  // interns the board name, as on a long-lived connection
+		json = new String(JsonSerialization.toUtf8(event), StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public ByteBuffer encodeBinary() {
+		buffer.clear();
+		encoder.encode(event, buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] encodeJson() {
+		return JsonSerialization.toUtf8(event);
+	}
+
+	/** each decode uses a new decoder, so the interned board name is read in full every time */
+	@Benchmark
+	public EventRecord decodeBinary() {
+		return new BinaryEventCodec.Decoder().decode(ByteBuffer.wrap(binary));
+	}
+
+	@Benchmark
+	public JsonElement decodeJson() {
+		return new JsonParser().parse(json);
+	}
+}
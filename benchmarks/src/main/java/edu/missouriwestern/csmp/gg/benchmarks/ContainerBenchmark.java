@@ -0,0 +1,48 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Tile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** measures reading the contents of a tile holding a number of entities */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContainerBenchmark {
+
+	@Param({"0", "1", "16", "256"})
+	int occupants;
+
+	BenchmarkGame game;
+	Tile tile;
+
+	@Setup
+	public void setup() {
+		game = new BenchmarkGame();
+		var board = game.addOpenBoard("bench", 8, 8);
+		tile = board.getTile(3, 3);
+		for(int i = 0; i < occupants; i++)
+			game.moveEntity(new BenchmarkGame.Thing(game, Map.of()), tile);
+	}
+
+	@Benchmark
+	public void getContainerContents(Blackhole bh) {
+		game.getContainerContents(tile).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void forEachEntity(Blackhole bh) {
+		tile.forEachEntity(bh::consume);
+	}
+
+	@Benchmark
+	public boolean isEmpty() {
+		return tile.isEmpty();
+	}
+}
@@ -0,0 +1,96 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Entity;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** measures how Game.moveEntity scales as more threads move entities at once.
+ * Each thread moves its own slice of the entities between random tiles of one board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContainmentBenchmark {
+
+	static final int ENTITIES = 4096;
+	static final int SIZE = 128;
+
+	BenchmarkGame game;
+	Board board;
+	Entity[] entities;
+	final AtomicInteger nextMover = new AtomicInteger();
+
+	@Setup
+	public void setup() {
+		game = new BenchmarkGame();
+		board = game.addOpenBoard("bench", SIZE, SIZE);
+		entities = new Entity[ENTITIES];
+		for(int i = 0; i < ENTITIES; i++)
+			entities[i] = new BenchmarkGame.Thing(game, Map.of());
+	}
+
+	/** per-thread view of the entities this thread moves */
+	@State(Scope.Thread)
+	public static class Mover {
+		SplittableRandom random;
+		int offset;
+
+		@Setup
+		public void setup(ContainmentBenchmark bench) {
+			int index = bench.nextMover.getAndIncrement();
+			random = new SplittableRandom(index);
+			offset = (index * 257) % ENTITIES;
+		}
+
+		Entity nextEntity(Entity[] entities) {
+			return entities[(offset + random.nextInt(256)) % ENTITIES];
+		}
+
+		Tile nextTile(Board board) {
+			return board.getTile(random.nextInt(SIZE), random.nextInt(SIZE));
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void move1(Mover mover) {
+		game.moveEntity(mover.nextEntity(entities), mover.nextTile(board));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void move4(Mover mover) {
+		game.moveEntity(mover.nextEntity(entities), mover.nextTile(board));
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void moveMax(Mover mover) {
+		game.moveEntity(mover.nextEntity(entities), mover.nextTile(board));
+	}
+
+	/** movers and readers running at the same time */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public void mixedMove(Mover mover) {
+		game.moveEntity(mover.nextEntity(entities), mover.nextTile(board));
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public boolean mixedLocate(Mover mover) {
+		var ent = mover.nextEntity(entities);
+		return game.containsEntity(game.getEntityLocation(ent), ent);
+	}
+}
@@ -0,0 +1,39 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Entity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** measures constructing entities, which registers them with their game */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityBenchmark {
+
+	static final Map<String,String> PROPERTIES = Map.of("name", "crate", "weight", "12");
+
+	BenchmarkGame game;
+
+	/** start each iteration with an empty game so the registry does not grow without bound */
+	@Setup(Level.Iteration)
+	public void setup() {
+		game = new BenchmarkGame();
+	}
+
+	@Benchmark
+	public Entity construct() {
+		return new BenchmarkGame.Thing(game, PROPERTIES);
+	}
+
+	@Benchmark
+	public Entity constructAndRemove() {
+		var ent = new BenchmarkGame.Thing(game, PROPERTIES);
+		game.removeEntity(ent);
+		return ent;
+	}
+}
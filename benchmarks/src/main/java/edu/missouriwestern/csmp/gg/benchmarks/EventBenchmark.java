@@ -0,0 +1,64 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Entity;
+import edu.missouriwestern.csmp.gg.base.Event;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+import edu.missouriwestern.csmp.gg.base.events.TileStateUpdateEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** measures creating events and delivering them to many listeners */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventBenchmark {
+
+	@Param({"1", "16", "256"})
+	int listeners;
+
+	BenchmarkGame game;
+	Entity entity;
+	Tile tile;
+	Event event;
+
+	@Setup
+	public void setup(Blackhole bh) {
+		game = new BenchmarkGame();
+		var board = game.addOpenBoard("bench", 16, 16);
+		tile = board.getTile(4, 4);
+		entity = new BenchmarkGame.Thing(game, Map.of());
+		game.moveEntity(entity, tile);
+		for(int i = 0; i < listeners; i++)
+			game.registerListener(bh::consume);
+		event = new EntityMovedEvent(entity, board.getTile(3, 4), tile);
+	}
+
+	@Benchmark
+	public Event createEntityMovedEvent() {
+		return new EntityMovedEvent(entity, tile, tile);
+	}
+
+	@Benchmark
+	public Event createTileStateUpdateEvent() {
+		return new TileStateUpdateEvent(tile);
+	}
+
+	/** delivers one event to every registered listener */
+	@Benchmark
+	public void propagateEvent() {
+		game.propagateEvent(event);
+	}
+
+	/** a whole move: updating containment, creating the event and delivering it */
+	@Benchmark
+	public void moveEntity() {
+		game.moveEntity(entity, tile);
+	}
+}
@@ -0,0 +1,84 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Entity;
+import edu.missouriwestern.csmp.gg.base.FieldOfView;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** measures a tick's worth of field of view updates for many viewers on a generated map.
+ * Each operation moves some of the viewers one tile and then asks every viewer what it can see,
+ * so only the viewers that moved are recomputed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldOfViewBenchmark {
+
+	static final int SIZE = 256;
+
+	@Param({"100", "500"})
+	int viewers;
+
+	@Param({"8", "16"})
+	int radius;
+
+	/** fraction of viewers that move each tick */
+	@Param({"0.1", "1.0"})
+	double moving;
+
+	BenchmarkGame game;
+	Board board;
+	FieldOfView fieldOfView;
+	Entity[] entities;
+	SplittableRandom random;
+
+	@Setup
+	public void setup() {
+		game = new BenchmarkGame();
+		board = game.addBoard("bench", BenchmarkGame.generateMap(SIZE, SIZE, 0.2, 42));
+		fieldOfView = board.getFieldOfView();
+		var floor = board.getTileStream().filter(t -> !fieldOfView.isOpaque(t.getColumn(), t.getRow()))
+				.toArray(Tile[]::new);
+		random = new SplittableRandom(42);
+		entities = new Entity[viewers];
+		for(int i = 0; i < viewers; i++) {
+			entities[i] = new BenchmarkGame.Thing(game, Map.of());
+			game.moveEntity(entities[i], floor[random.nextInt(floor.length)]);
+			fieldOfView.addViewer(entities[i], radius);
+		}
+	}
+
+	@Benchmark
+	public int tick() {
+		int movers = (int)(viewers * moving);
+		for(int i = 0; i < movers; i++) {
+			var entity = entities[random.nextInt(viewers)];
+			var tile = (Tile)game.getEntityLocation(entity);
+			var next = board.getTile(tile.getColumn() + random.nextInt(3) - 1, tile.getRow() + random.nextInt(3) - 1);
+			if(next != null && !fieldOfView.isOpaque(next.getColumn(), next.getRow()))
+				game.moveEntity(entity, next);
+		}
+		int visible = 0;
+		for(var entity : entities)
+			visible += fieldOfView.getVisible(entity).count();
+		return visible;
+	}
+
+	/** line of sight between two random tiles up to twice the radius apart */
+	@Benchmark
+	public boolean lineOfSight() {
+		int column = random.nextInt(SIZE), row = random.nextInt(SIZE);
+		var from = board.getTile(column, row);
+		var to = board.getTile(Math.floorMod(column + random.nextInt(4 * radius) - 2 * radius, SIZE),
+				Math.floorMod(row + random.nextInt(4 * radius) - 2 * radius, SIZE));
+		return fieldOfView.hasLineOfSight(from, to);
+	}
+}
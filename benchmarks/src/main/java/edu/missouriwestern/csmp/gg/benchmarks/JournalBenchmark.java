@@ -0,0 +1,96 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Event;
+import edu.missouriwestern.csmp.gg.base.EventJournal;
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** measures appending move events to an {@link EventJournal} and reading them back */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+	@Param({"1", "1000"})
+	int eventsPerFlush;
+
+	static final int REPLAYED_EVENTS = 100_000;
+
+	List<Event> events;
+	Path writeDirectory;
+	Path readDirectory;
+	EventJournal journal;
+	int next;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		var game = new BenchmarkGame();
+		var board = game.addOpenBoard("bench", 64, 64);
+		var entity = new BenchmarkGame.Thing(game, Map.of());
+		events = new ArrayList<>();
+		for(int i = 0; i < 1024; i++) {
+			var previous = board.getTile(i % 64, (i / 64) % 64);
+			var destination = board.getTile((i + 1) % 64, (i / 64) % 64);
+			game.moveEntity(entity, destination);
+			events.add(new EntityMovedEvent(entity, previous, destination));
+		}
+		readDirectory = Files.createTempDirectory("journal-read");
+		try(var replay = new EventJournal(readDirectory)) {
+			for(int i = 0; i < REPLAYED_EVENTS; i++)
+				replay.accept(events.get(i % events.size()));
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void openJournal() throws IOException {
+		writeDirectory = Files.createTempDirectory("journal-write");
+		journal = new EventJournal(writeDirectory);
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeJournal() throws IOException {
+		journal.close();
+		delete(writeDirectory);
+	}
+
+	@TearDown(Level.Trial)
+	public void cleanUp() throws IOException {
+		delete(readDirectory);
+	}
+
+	/** appends one event, waiting for durability every eventsPerFlush events */
+	@Benchmark
+	public void append() throws IOException {
+		journal.accept(events.get(next++ & 1023));
+		if(next % eventsPerFlush == 0)
+			journal.flush();
+	}
+
+	/** reads back a journal of REPLAYED_EVENTS moves */
+	@Benchmark
+	@OperationsPerInvocation(REPLAYED_EVENTS)
+	public void replay(Blackhole bh) throws IOException {
+		EventJournal.read(readDirectory, 0, bh::consume);
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try(Stream<Path> files = Files.walk(directory)) {
+			for(var path : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Pathfinder;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** compares A*, Jump Point Search, flow fields and reachability checks between random tiles of large generated maps */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathfindingBenchmark {
+
+	@Param({"256", "1024"})
+	int size;
+
+	@Param({"0.1", "0.3"})
+	double wallDensity;
+
+	Board board;
+	Pathfinder pathfinder;
+	Tile[] floor;  // passable tiles to pick endpoints from
+	SplittableRandom random;
+	Pathfinder.FlowField field;
+
+	@Setup
+	public void setup() {
+		var game = new BenchmarkGame();
+		board = game.addBoard("bench", BenchmarkGame.generateMap(size, size, wallDensity, 42));
+		pathfinder = board.getPathfinder();
+		floor = board.getTileStream().filter(pathfinder::isPassable).toArray(Tile[]::new);
+		random = new SplittableRandom(42);
+		field = pathfinder.getFlowField(floor[floor.length / 2]);
+	}
+
+	private Tile randomFloor() {
+		return floor[random.nextInt(floor.length)];
+	}
+
+	@Benchmark
+	public Optional<List<Tile>> aStar() {
+		return pathfinder.findPath(randomFloor(), randomFloor());
+	}
+
+	@Benchmark
+	public Optional<List<Tile>> jumpPointSearch() {
+		return pathfinder.findPathJps(randomFloor(), randomFloor());
+	}
+
+	/** constant-time reachability check that lets searches between separate regions fail at once */
+	@Benchmark
+	public boolean isConnected() {
+		return pathfinder.getConnectivityIndex().isConnected(randomFloor(), randomFloor());
+	}
+
+	/** building a flow field covers the whole board; goals are random, so nearly every call builds one */
+	@Benchmark
+	public int buildFlowField() {
+		return pathfinder.getFlowField(randomFloor()).getDistance(randomFloor());
+	}
+
+	/** steering with a cached flow field, which is what each of many entities sharing a goal pays */
+	@Benchmark
+	public Tile flowFieldStep() {
+		return field.next(randomFloor());
+	}
+}
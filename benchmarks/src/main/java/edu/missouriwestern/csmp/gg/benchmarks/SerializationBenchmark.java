@@ -0,0 +1,65 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Entity;
+import edu.missouriwestern.csmp.gg.base.Event;
+import edu.missouriwestern.csmp.gg.base.Player;
+import edu.missouriwestern.csmp.gg.base.Tile;
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** measures the JSON produced by toString for the objects sent to clients */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+	BenchmarkGame game;
+	Tile tile;
+	Entity entity;
+	Player player;
+	Event event;
+
+	@Setup
+	public void setup() {
+		game = new BenchmarkGame();
+		var board = game.addOpenBoard("bench", 16, 16);
+		tile = board.getTile(4, 4);
+		entity = new BenchmarkGame.Thing(game, Map.of("name", "crate", "weight", "12"));
+		game.moveEntity(entity, tile);
+		player = new BenchmarkGame.Spectator("alice", game);
+		for(int i = 0; i < 4; i++)
+			game.moveEntity(new BenchmarkGame.Thing(game, Map.of()), player);
+		event = new EntityMovedEvent(entity, board.getTile(3, 4), tile);
+	}
+
+	@Benchmark
+	public String game() {
+		return game.toString();
+	}
+
+	@Benchmark
+	public String tile() {
+		return tile.toString();
+	}
+
+	@Benchmark
+	public String entity() {
+		return entity.toString();
+	}
+
+	@Benchmark
+	public String player() {
+		return player.toString();
+	}
+
+	@Benchmark
+	public String event() {
+		return event.toString();
+	}
+}
@@ -0,0 +1,155 @@
+package edu.missouriwestern.csmp.gg.benchmarks;
+
+import edu.missouriwestern.csmp.gg.base.Board;
+import edu.missouriwestern.csmp.gg.base.Entity;
+import edu.missouriwestern.csmp.gg.base.SpatialIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** compares finding the entities near a point with a board's spatial index against scanning its tiles,
+ * and measures moves and queries made by several threads on one board at once */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpatialIndexBenchmark {
+
+	static final int SIZE = 512;
+
+	@Param({"1000", "20000"})
+	int entities;
+
+	@Param({"4", "16"})
+	int radius;
+
+	BenchmarkGame game;
+	Board board;
+	SpatialIndex index;
+	Entity[] placed;
+	SplittableRandom random;
+	final int[] nearest = new int[8];
+	int count;
+
+	@Setup
+	public void setup() {
+		game = new BenchmarkGame();
+		board = game.addOpenBoard("bench", SIZE, SIZE);
+		index = board.getSpatialIndex();
+		random = new SplittableRandom(42);
+		placed = new Entity[entities];
+		for(int i = 0; i < entities; i++) {
+			placed[i] = new BenchmarkGame.Thing(game, Map.of());
+			game.moveEntity(placed[i], board.getTile(random.nextInt(SIZE), random.nextInt(SIZE)));
+		}
+	}
+
+	@Benchmark
+	public int inRange() {
+		count = 0;
+		index.forEachInRange(random.nextInt(SIZE), random.nextInt(SIZE), radius, id -> count++);
+		return count;
+	}
+
+	/** the same query answered by asking every tile in range for its entities */
+	@Benchmark
+	public int inRangeByScanningTiles() {
+		int column = random.nextInt(SIZE), row = random.nextInt(SIZE);
+		int found = 0;
+		for(int r = Math.max(0, row - radius); r <= Math.min(SIZE - 1, row + radius); r++)
+			for(int c = Math.max(0, column - radius); c <= Math.min(SIZE - 1, column + radius); c++)
+				if((c - column) * (c - column) + (r - row) * (r - row) <= radius * radius)
+					found += board.getTile(c, r).getEntities().count();
+		return found;
+	}
+
+	@Benchmark
+	public int inRectangle() {
+		count = 0;
+		index.forEachInRectangle(random.nextInt(SIZE), random.nextInt(SIZE), 2 * radius, radius, id -> count++);
+		return count;
+	}
+
+	@Benchmark
+	public int findNearest() {
+		return index.findNearest(random.nextInt(SIZE), random.nextInt(SIZE), nearest);
+	}
+
+	/** moving an entity now also updates the index */
+	@Benchmark
+	public void move() {
+		game.moveEntity(placed[random.nextInt(entities)], board.getTile(random.nextInt(SIZE), random.nextInt(SIZE)));
+	}
+
+	/** a board whose entities are moved and looked up by several threads at once */
+	@State(Scope.Benchmark)
+	public static class Shared {
+		static final int ENTITIES = 4096;
+
+		BenchmarkGame game;
+		Board board;
+		SpatialIndex index;
+		Entity[] placed;
+		final AtomicInteger nextThread = new AtomicInteger();
+
+		@Setup
+		public void setup() {
+			game = new BenchmarkGame();
+			board = game.addOpenBoard("bench", SIZE, SIZE);
+			index = board.getSpatialIndex();
+			var random = new SplittableRandom(42);
+			placed = new Entity[ENTITIES];
+			for(int i = 0; i < ENTITIES; i++) {
+				placed[i] = new BenchmarkGame.Thing(game, Map.of());
+				game.moveEntity(placed[i], board.getTile(random.nextInt(SIZE), random.nextInt(SIZE)));
+			}
+		}
+	}
+
+	/** per-thread random choices for the shared board */
+	@State(Scope.Thread)
+	public static class Local {
+		SplittableRandom random;
+		int count;
+
+		@Setup
+		public void setup(Shared shared) {
+			random = new SplittableRandom(shared.nextThread.getAndIncrement());
+		}
+	}
+
+	/** threads moving entities to random tiles, so moves in different cells run side by side */
+	@Benchmark
+	@Group("concurrentMoves")
+	@GroupThreads(4)
+	public void concurrentMove(Shared shared, Local local) {
+		var random = local.random;
+		shared.game.moveEntity(shared.placed[random.nextInt(Shared.ENTITIES)],
+				shared.board.getTile(random.nextInt(SIZE), random.nextInt(SIZE)));
+	}
+
+	/** movers and range queries running at the same time; queries only hold the cell they are looking at */
+	@Benchmark
+	@Group("movesAndQueries")
+	@GroupThreads(2)
+	public void mixedMove(Shared shared, Local local) {
+		var random = local.random;
+		shared.game.moveEntity(shared.placed[random.nextInt(Shared.ENTITIES)],
+				shared.board.getTile(random.nextInt(SIZE), random.nextInt(SIZE)));
+	}
+
+	@Benchmark
+	@Group("movesAndQueries")
+	@GroupThreads(2)
+	public int mixedInRange(Shared shared, Local local) {
+		var random = local.random;
+		local.count = 0;
+		shared.index.forEachInRange(random.nextInt(SIZE), random.nextInt(SIZE), 16, id -> local.count++);
+		return local.count;
+	}
+}
@@ -0,0 +1,334 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** compact binary alternative to the JSON form of events.
+ * Each encoded event starts with a version byte and a tag identifying its class, followed by its ID and
+ * time and then its payload. Numbers are written as variable-length integers, and low-cardinality strings
+ * such as board names, game names, player IDs and command names are interned: the first occurrence
+ * is written in full and later ones as a small index. Null strings, such as a command without a parameter,
+ * are written as a reference of their own and decoded as null.
+ * <p>
+ * Interning makes encoders and decoders stateful. Every event encoded by one {@link Encoder} must be
+ * decoded, in the same order, by one {@link Decoder}; use one pair per connection or file.
+ * Built-in event classes have dedicated layouts; any other event is written with its type name and
+ * all of its properties. Decoding yields an {@link EventRecord}, whose JSON matches the original event's.
+ */
+public final class BinaryEventCodec {
+
+	/** version written at the start of every encoded event.
+	 * Version 2 added the container an entity moved into, and version 3 null strings; events of earlier
+	 * versions can still be decoded. */
+	public static final int VERSION = 3;
+
+	// type tags
+	private static final int OTHER = 0;
+	private static final int ENTITY_MOVED = 1;
+	private static final int ENTITY_CREATED = 2;
+	private static final int ENTITY_DELETED = 3;
+	private static final int TILE_UPDATED = 4;
+	private static final int COMMAND = 5;
+	private static final int GAME_START = 6;
+
+	// kinds of location in an entity moved event
+	private static final int NO_LOCATION = 0;
+	private static final int TILE = 1;
+	private static final int CONTAINER = 2;
+
+	// string references: literal, literal to be interned, null, or 3 + index of an interned string
+	// (2 + index before version 3, which had no null)
+	private static final int LITERAL = 0;
+	private static final int NEW_INTERNED = 1;
+	private static final int NULL_STRING = 2;
+	private static final int FIRST_INDEX = 3;
+	private static final int MAX_INTERNED = 4096;
+
+	private BinaryEventCodec() { }
+
+	/** writes events in binary form, remembering which strings have been interned so far */
+	public static final class Encoder {
+		private final Map<String,Integer> interned = new HashMap<>();
+		private final List<String> pending = new ArrayList<>(); // interned by the event being written
+		private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+		/** returns the binary form of event */
+		public byte[] encode(Event event) {
+			while(true) {
+				scratch.clear();
+				try {
+					encode(event, scratch);
+					return Arrays.copyOf(scratch.array(), scratch.position());
+				} catch(BufferOverflowException e) {
+					scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+				}
+			}
+		}
+
+		/** writes the binary form of event to out.
+		 * Nothing is interned by an event that could not be written, whatever the reason, but out's position
+		 * is then undefined.
+		 * @throws BufferOverflowException if out does not have room
+		 */
+		public void encode(Event event, ByteBuffer out) {
+			pending.clear();
+			try {
+				writeEvent(event, out);
+			} catch(RuntimeException e) {
+				pending.forEach(interned::remove);
+				throw e;
+			}
+		}
+
+		private void writeEvent(Event event, ByteBuffer out) {
+			var type = event.getClass();
+			out.put((byte)VERSION);
+			if(type == EntityMovedEvent.class) {
+				var moved = (EntityMovedEvent)event;
+				writeHeader(out, ENTITY_MOVED, event);
+				writeInt(out, moved.getEntityId());
+				writeLocation(out, moved.getPreviousContainer());
+				writeLocation(out, moved.getNewContainer());
+			} else if(type == EntityCreationEvent.class || type == EntityDeletionEvent.class) {
+				boolean created = type == EntityCreationEvent.class;
+				writeHeader(out, created ? ENTITY_CREATED : ENTITY_DELETED, event);
+				writeString(out, event.getGame().getClass().getSimpleName(), true);
+				writeInt(out, created ? ((EntityCreationEvent)event).getEntityId()
+						: ((EntityDeletionEvent)event).getEntityId());
+			} else if(type == TileStateUpdateEvent.class) {
+				var tile = ((TileStateUpdateEvent)event).getTile();
+				writeHeader(out, TILE_UPDATED, event);
+				writeTile(out, tile.getBoard().getName(), tile.getColumn(), tile.getRow());
+			} else if(type == CommandEvent.class) {
+				var command = (CommandEvent)event;
+				writeHeader(out, COMMAND, event);
+				writeString(out, command.getPlayerId(), true);
+				writeString(out, command.getCommandName(), true);
+				writeString(out, command.getParameterValue(), false);
+			} else if(type == GameStartEvent.class) {
+				writeHeader(out, GAME_START, event);
+			} else {
+				writeHeader(out, OTHER, event);
+				writeString(out, type.getSimpleName(), true);
+				var properties = event.getProperties();
+				writeUnsigned(out, properties.size() - (properties.containsKey("id") ? 1 : 0));
+				for(var property : properties.entrySet()) {
+					if(property.getKey().equals("id"))
+						continue;  // restored from the event ID
+					writeString(out, property.getKey(), true);
+					writeString(out, property.getValue(), false);
+				}
+			}
+		}
+
+		private void writeHeader(ByteBuffer out, int tag, Event event) {
+			out.put((byte)tag);
+			writeInt(out, event.getId());
+			writeLong(out, event.getEventTime());
+		}
+
+		private void writeLocation(ByteBuffer out, Container container) {
+			if(container instanceof Tile) {
+				var tile = (Tile)container;
+				out.put((byte)TILE);
+				writeTile(out, tile.getBoard().getName(), tile.getColumn(), tile.getRow());
+			} else if(container instanceof Entity) {
+				out.put((byte)CONTAINER);
+				writeInt(out, ((Entity)container).getID());
+			} else {
+				out.put((byte)NO_LOCATION);
+			}
+		}
+
+		private void writeTile(ByteBuffer out, String board, int column, int row) {
+			writeString(out, board, true);
+			writeInt(out, column);
+			writeInt(out, row);
+		}
+
+		private void writeString(ByteBuffer out, String s, boolean intern) {
+			if(s == null) {
+				out.put((byte)NULL_STRING);
+				return;
+			}
+			if(intern) {
+				var index = interned.get(s);
+				if(index != null) {
+					writeUnsigned(out, index + FIRST_INDEX);
+					return;
+				}
+				if(interned.size() < MAX_INTERNED) {
+					interned.put(s, interned.size());
+					pending.add(s);
+					out.put((byte)NEW_INTERNED);
+					writeLiteral(out, s);
+					return;
+				}
+			}
+			out.put((byte)LITERAL);
+			writeLiteral(out, s);
+		}
+
+		private static void writeLiteral(ByteBuffer out, String s) {
+			var bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeUnsigned(out, bytes.length);
+			out.put(bytes);
+		}
+	}
+
+	/** reads events written by an {@link Encoder} */
+	public static final class Decoder {
+		private final List<String> interned = new ArrayList<>();
+		private int version;  // of the event being decoded
+
+		/** reads the next event from in
+		 * @throws IllegalArgumentException if the event was written by an unsupported version of the codec */
+		public EventRecord decode(ByteBuffer in) {
+			int version = in.get();
+			if(version < 1 || version > VERSION)
+				throw new IllegalArgumentException("unsupported event encoding version " + version);
+			this.version = version;
+			int tag = in.get();
+			int id = readInt(in);
+			long time = readLong(in);
+			var properties = new HashMap<String,String>();
+			properties.put("id", ""+id);
+			String type;
+			switch(tag) {
+				case ENTITY_MOVED:
+					type = EntityMovedEvent.class.getSimpleName();
+					properties.put("entity", ""+readInt(in));
+					readLocation(in, properties, "");
+					if(version >= 2)
+						readLocation(in, properties, "to-");
+					break;
+				case ENTITY_CREATED:
+				case ENTITY_DELETED:
+					type = (tag == ENTITY_CREATED ? EntityCreationEvent.class : EntityDeletionEvent.class).getSimpleName();
+					properties.put("game", readString(in));
+					properties.put("entity", ""+readInt(in));
+					break;
+				case TILE_UPDATED:
+					type = TileStateUpdateEvent.class.getSimpleName();
+					readTile(in, properties);
+					break;
+				case COMMAND:
+					type = CommandEvent.class.getSimpleName();
+					properties.put("player", readString(in));
+					properties.put("command", readString(in));
+					properties.put("parameter", readString(in));
+					break;
+				case GAME_START:
+					type = GameStartEvent.class.getSimpleName();
+					break;
+				case OTHER:
+					type = readString(in);
+					for(int i = readUnsigned(in); i > 0; i--)
+						properties.put(readString(in), readString(in));
+					break;
+				default:
+					throw new IllegalArgumentException("unknown event tag " + tag);
+			}
+			return new EventRecord(type, id, time, properties);
+		}
+
+		private void readLocation(ByteBuffer in, Map<String,String> properties, String prefix) {
+			int location = in.get();
+			if(location == TILE) {
+				readTile(in, properties, prefix);
+			} else if(location == CONTAINER) {
+				properties.put(prefix + "container", ""+readInt(in));
+			}
+		}
+
+		private void readTile(ByteBuffer in, Map<String,String> properties) {
+			readTile(in, properties, "");
+		}
+
+		private void readTile(ByteBuffer in, Map<String,String> properties, String prefix) {
+			properties.put(prefix + "board", readString(in));
+			properties.put(prefix + "column", ""+readInt(in));
+			properties.put(prefix + "row", ""+readInt(in));
+		}
+
+		private String readString(ByteBuffer in) {
+			int ref = readUnsigned(in);
+			int firstIndex = version >= 3 ? FIRST_INDEX : NULL_STRING;
+			if(ref >= firstIndex)
+				return interned.get(ref - firstIndex);
+			if(ref == NULL_STRING)
+				return null;
+			var bytes = new byte[readUnsigned(in)];
+			in.get(bytes);
+			var s = new String(bytes, StandardCharsets.UTF_8);
+			if(ref == NEW_INTERNED)
+				interned.add(s);
+			return s;
+		}
+	}
+
+	static void writeUnsigned(ByteBuffer out, int value) {
+		while((value & ~0x7f) != 0) {
+			out.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte)value);
+	}
+
+	static void writeUnsignedLong(ByteBuffer out, long value) {
+		while((value & ~0x7fL) != 0) {
+			out.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte)value);
+	}
+
+	/** writes a signed int zigzag encoded, so small negative numbers stay short */
+	static void writeInt(ByteBuffer out, int value) {
+		writeUnsigned(out, (value << 1) ^ (value >> 31));
+	}
+
+	static void writeLong(ByteBuffer out, long value) {
+		writeUnsignedLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	static int readUnsigned(ByteBuffer in) {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if(b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("malformed variable-length integer");
+	}
+
+	static long readUnsignedLong(ByteBuffer in) {
+		long value = 0;
+		for(int shift = 0; shift < 70; shift += 7) {
+			byte b = in.get();
+			value |= (long)(b & 0x7f) << shift;
+			if(b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("malformed variable-length integer");
+	}
+
+	static int readInt(ByteBuffer in) {
+		int value = readUnsigned(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static long readLong(ByteBuffer in) {
+		long value = readUnsignedLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -2,25 +2,41 @@ package edu.missouriwestern.csmp.gg.base;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
-import com.google.gson.GsonBuilder;
 import net.sourcedestination.funcles.tuple.Pair;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
-/** represents a 2d grid of tiles used as a playing surface for a game
+/** represents a 2d grid of tiles used as a playing surface for a game.
+ * Boards built from a string create all their tiles up front. Boards read from a {@link Reader} or
+ * memory-mapped from a file are chunked: they keep only their layout and create tiles as they are used,
+ * which suits maps too large to hold as tiles all at once.
  *  */
 public class Board implements EventProducer {
 	private static Logger logger = Logger.getLogger(EventProducer.class.getCanonicalName());
 
-	private final Map<Pair<Integer>, Tile> tiles;
+	public static final int DEFAULT_MAX_LOADED_CHUNKS = 1024;
+
+	private final TileStore tiles;
+	private final int width;
+	private final int height;
+	private volatile Map<Pair<Integer>, Tile> tileMap; // built on first call to getTiles
+	// tile types never change after construction, so these are rendered once on first use
+	private volatile String tileMapString;
+	private volatile String descriptor;
 	private final BiMap<Character,String> tileTypeChars;
 	private final Map<EventListener,Object> listeners = new ConcurrentHashMap<>();
 			// no concurrent set, so only keys used to mimic set
 	private final String name;
 	private final Game game;
+	private volatile Pathfinder pathfinder;  // created on first use
+	private volatile FieldOfView fieldOfView;  // created on first use
+	private final SpatialIndex spatialIndex;
 
 	/** outfits board according to layout of characters in multi-line string charMap.
 	 * Characters that are not keys in {@param tileTypeChars} can be used to
@@ -37,9 +53,31 @@ public class Board implements EventProducer {
 	public Board(Map<Character, String> tileTypeChars, Game game, String name, String charMap,
                  Map<Character, Map<String,String>> tileTypeProperties,
                  Map<Pair<Integer>, Map<String,String>> tileProperties) {
-		var tiles = new HashMap<Pair<Integer>,Tile>();
+		// find the extent of the tiles first so they can be stored in a flat array
+		int width = 0, height = 0;
 		int col=0, row=0;
-		for(char c : charMap.toCharArray()) {
+		for(int i = 0; i < charMap.length(); i++) {
+			char c = charMap.charAt(i);
+			if(c == '\n') {
+				row++;
+				col = 0;
+			} else {
+				if(tileTypeChars.containsKey(c)) {
+					width = Math.max(width, col + 1);
+					height = Math.max(height, row + 1);
+				}
+				col++;
+			}
+		}
+		this.width = width;
+		this.height = height;
+		this.spatialIndex = new SpatialIndex(width, height);
+		var overrides = indexTileProperties(tileProperties, width, height);
+		var tiles = new Tile[width * height];
+
+		col=0; row=0;
+		for(int i = 0; i < charMap.length(); i++) {
+			char c = charMap.charAt(i);
 			if(c == '\n') { // reset to next row
 				row++; // increment row
 				col = 0; // start at first column
@@ -49,32 +87,89 @@ public class Board implements EventProducer {
 
                     if(tileTypeProperties.containsKey(c))  // if properties for tile type were specified
                         properties.putAll(tileTypeProperties.get(c));
-
-                    // spring XML makes pairs of strings instead of pairs of integers, so strings are used below
-                    if(tileProperties.containsKey(Pair.makePair(""+col, ""+row)))  // if properties for this location were specified
-                        properties.putAll(tileProperties.get(Pair.makePair(""+col, ""+row)));
+                    var override = overrides.get(row * width + col);
+                    if(override != null)  // if properties for this location were specified
+                        properties.putAll(override);
                     if(!properties.containsKey("character"))
                     	properties.put("character", ""+c);
-                    var tile = new Tile(this, col, row, tileTypeChars.get(c), properties);
-					tiles.put(Pair.makePair(col, row), tile);
+                    tiles[row * width + col] = new Tile(this, col, row, tileTypeChars.get(c), properties);
 				}
 				col++; // increment column
 			}
 		}
+		this.tiles = new DenseTileStore(tiles, width);
 		this.game = game;
 		this.name = name;
 		this.tileTypeChars = HashBiMap.create(tileTypeChars);
-		this.tiles = Collections.unmodifiableMap(tiles);
+	}
+
+	/** builds a chunked board, streaming its layout from charMap.
+	 * Only the layout is read up front, at one byte per cell; tiles are created a chunk at a time when
+	 * first used, and chunks nobody is using are let go again once more than
+	 * {@value #DEFAULT_MAX_LOADED_CHUNKS} are held (see {@link #setMaxLoadedChunks(int)}).
+	 * Otherwise the board behaves like one built from a string.
+	 * @throws IllegalArgumentException if there are more than 255 tile types
+	 */
+	public Board(Map<Character, String> tileTypeChars, Game game, String name, Reader charMap,
+	             Map<Character, Map<String,String>> tileTypeProperties,
+	             Map<Pair<Integer>, Map<String,String>> tileProperties) throws IOException {
+		this(tileTypeChars, game, name, CharMapCells.read(charMap, tileTypeChars.keySet()),
+				tileTypeProperties, tileProperties);
+	}
+
+	/** builds a chunked board whose layout is memory-mapped from charMapFile rather than read into memory.
+	 * The file must use ASCII tile characters and must not change while the board is in use.
+	 * @see #Board(Map, Game, String, Reader, Map, Map)
+	 */
+	public Board(Map<Character, String> tileTypeChars, Game game, String name, Path charMapFile,
+	             Map<Character, Map<String,String>> tileTypeProperties,
+	             Map<Pair<Integer>, Map<String,String>> tileProperties) throws IOException {
+		this(tileTypeChars, game, name, CharMapCells.map(charMapFile, tileTypeChars.keySet()),
+				tileTypeProperties, tileProperties);
+	}
+
+	private Board(Map<Character, String> tileTypeChars, Game game, String name, CharMapCells cells,
+	              Map<Character, Map<String,String>> tileTypeProperties,
+	              Map<Pair<Integer>, Map<String,String>> tileProperties) {
+		this.width = cells.getWidth();
+		this.height = cells.getHeight();
+		this.spatialIndex = new SpatialIndex(width, height);
+		this.tiles = new ChunkedTileStore(this, cells, Map.copyOf(tileTypeChars), Map.copyOf(tileTypeProperties),
+				indexTileProperties(tileProperties, width, height), DEFAULT_MAX_LOADED_CHUNKS);
+		this.game = game;
+		this.name = name;
+		this.tileTypeChars = HashBiMap.create(tileTypeChars);
+	}
+
+	/** indexes properties for individual tiles by row * width + column.
+	 * Spring XML makes pairs of strings instead of pairs of integers, so either is accepted.
+	 */
+	private static Map<Integer, Map<String,String>> indexTileProperties(
+			Map<Pair<Integer>, Map<String,String>> tileProperties, int width, int height) {
+		var index = new HashMap<Integer, Map<String,String>>();
+		for(var entry : tileProperties.entrySet()) {
+			Pair<?> location = entry.getKey();
+			int column, row;
+			try {
+				column = Integer.parseInt(String.valueOf(location._1).trim());
+				row = Integer.parseInt(String.valueOf(location._2).trim());
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("tile location is not a pair of numbers: " + location, e);
+			}
+			if(column >= 0 && row >= 0 && column < width && row < height)
+				index.computeIfAbsent(row * width + column, i -> new HashMap<>()).putAll(entry.getValue());
+		}
+		return index;
 	}
 
 	@Override
 	public void registerListener(EventListener listener) {
-		listeners.put(listener, null);
+		listeners.put(listener, listener);
 	}
 
 	@Override
 	public void deregisterListener(EventListener listener) {
-		listeners.put(listener, null);
+		listeners.remove(listener);
 	}
 
 	@Override
@@ -82,20 +177,20 @@ public class Board implements EventProducer {
 		return listeners.keySet().stream();
 	}
 
+	/** forwards event to this board's listeners, skipping players the game's {@link InterestManager}
+	 * considers too far away */
+	@Override
+	public void propagateEvent(Event event) {
+		for(var listener : game.getInterestManager().filter(event, listeners.keySet()))
+			listener.accept(event);
+	}
+
 	/**
 	 * Returns the {@link Game} associated with this board
 	 * @return associated Game
 	 */
 	public Game getGame() { return game; }
 	
-	/**
-	 * Checks if Location exists on board.
-	 * @return
-	 */
-	private boolean locationExists(int column, int row){
-		return tiles.containsKey(Pair.makePair(column, row));
-	}
-
 	/**
 	 * Find an adjacent {@link Tile} given a Tile and {@link Direction}
 	 * @param tile original Tile
@@ -111,9 +206,7 @@ public class Board implements EventProducer {
 			case WEST: column--; break;
 			case EAST: column++; break;
 		}
-		if (locationExists(column, row))
-			return getTile(column, row);
-		return null;
+		return getTile(column, row);
 	}
 
 	/**
@@ -138,25 +231,34 @@ public class Board implements EventProducer {
 	}
 	
 	/**
-	 * Returns HashMap of {@link Tile}s associated with this Board
-	 * @return HashMap of tiles
+	 * Returns a read-only map of {@link Tile}s associated with this Board, keyed by column and row.
+	 * Kept for compatibility; prefer {@link #getTile(int, int)} and {@link #getTileStream()}.
+	 * @return map of tiles
 	 */
-	public Map<Pair<Integer>, Tile> getTiles() { return tiles; }
+	public Map<Pair<Integer>, Tile> getTiles() {
+		var map = tileMap;
+		if(map == null) {
+			var tiles = new HashMap<Pair<Integer>,Tile>();
+			getTileStream().forEach(tile -> tiles.put(Pair.makePair(tile.getColumn(), tile.getRow()), tile));
+			tileMap = map = Collections.unmodifiableMap(tiles);
+		}
+		return map;
+	}
 	
 	/**
 	 * Returns stream of {@link Tile}s associated with this Board
 	 * @return stream of all tiles associated with the board
 	 */
-	public Stream<Tile> getTileStream() { return tiles.values().stream(); }
+	public Stream<Tile> getTileStream() { return tiles.stream(); }
 
 	/**
 	 * Returns a {@link Tile} at the given coordinates
-	 * @return tile at given location
+	 * @return tile at given location, or null if there is none
 	 */
 	public Tile getTile(int column, int row) {
-		if(!locationExists(column, row))
+		if(column < 0 || row < 0 || column >= width || row >= height)
 			return null;
-		return tiles.get(Pair.makePair(column, row));
+		return tiles.get(column, row);
 	}
 
 	/**
@@ -172,54 +274,114 @@ public class Board implements EventProducer {
 		return Optional.empty();
 	}
 
+	/** returns the pathfinder for this board, creating it on first use.
+	 * It starts with {@link Pathfinder#DEFAULT_PASSABILITY} and listens to this board to notice tiles
+	 * whose passability changes.
+	 */
+	public Pathfinder getPathfinder() {
+		var pathfinder = this.pathfinder;
+		if(pathfinder == null) {
+			synchronized(this) {
+				pathfinder = this.pathfinder;
+				if(pathfinder == null) {
+					this.pathfinder = pathfinder = new Pathfinder(this, Pathfinder.DEFAULT_PASSABILITY);
+					registerListener(pathfinder);
+				}
+			}
+		}
+		return pathfinder;
+	}
+
+	/** returns the index of the entities standing on this board's tiles */
+	public SpatialIndex getSpatialIndex() {
+		return spatialIndex;
+	}
+
+	/** returns the field of view service for this board, creating it on first use.
+	 * It starts with {@link FieldOfView#DEFAULT_OPACITY} and listens to this board to notice tiles
+	 * whose opacity changes.
+	 */
+	public FieldOfView getFieldOfView() {
+		var fieldOfView = this.fieldOfView;
+		if(fieldOfView == null) {
+			synchronized(this) {
+				fieldOfView = this.fieldOfView;
+				if(fieldOfView == null) {
+					this.fieldOfView = fieldOfView = new FieldOfView(this, FieldOfView.DEFAULT_OPACITY);
+					registerListener(fieldOfView);
+				}
+			}
+		}
+		return fieldOfView;
+	}
+
+	/** limits how many chunks of a chunked board hold tiles at once.
+	 * Chunks with entities on them or tiles whose properties have been set are kept beyond the limit, and
+	 * tiles still referenced elsewhere survive their chunk being let go, so a cell's tile never changes.
+	 * Boards built from a string hold all their tiles and ignore the limit.
+	 */
+	public void setMaxLoadedChunks(int chunks) {
+		if(tiles instanceof ChunkedTileStore)
+			((ChunkedTileStore)tiles).setMaxLoaded(chunks);
+	}
+
+	/** called by tiles whose properties are set */
+	void tileModified(Tile tile) {
+		tiles.modified(tile);
+	}
+
+	/** characters used in the tile map for each tile type */
+	Map<Character,String> getTileTypeChars() {
+		return tileTypeChars;
+	}
+
 	public String getName() {
 		return name;
 	}
 
+	/** one more than the largest column holding a tile */
 	public int getWidth() {
-		return tiles.keySet().stream()
-				.mapToInt(Pair::_1)
-				.max().getAsInt() + 1;
+		return width;
 	}
 
+	/** one more than the largest row holding a tile */
 	public int getHeight() {
-		return tiles.keySet().stream()
-				.mapToInt(Pair::_2)
-				.max().getAsInt() + 1;
+		return height;
 	}
 
 
 	/** returns a multi-line string representing the layout of tile types on this board.
 	 * The names of classes represented by different characters in this string are held in tileTypeChars.
+	 * The string is built on first use and reused afterwards.
 	 * @return
 	 */
 	public String getTileMap() {
-
-		StringBuffer sb = new StringBuffer();
-		for(int r = 0; r < getHeight(); r++) {
-			for(int c = 0; c < getWidth(); c++) {
-				var location = Pair.makePair(c, r);
-				if(tiles.containsKey(location))
-					sb.append(tileTypeChars.inverse().get(tiles.get(location).getType()));
-				else sb.append(' ');
+		var tileMap = tileMapString;
+		if(tileMap == null) {
+			var typeChars = tileTypeChars.inverse();
+			var sb = new StringBuilder((width + 1) * height);
+			for(int r = 0; r < height; r++) {
+				for(int c = 0; c < width; c++) {
+					var type = tiles.getType(c, r);
+					if(type != null)
+						sb.append(typeChars.get(type).charValue());
+					else sb.append(' ');
+				}
+				sb.append('\n');
 			}
-			sb.append('\n');
+			tileMapString = tileMap = sb.toString();
 		}
-		return sb.toString();
+		return tileMap;
 	}
 
-	/** returns a JSON representation of this board and its properties
+	/** returns a JSON representation of this board and its properties.
+	 * Only immutable parts of the board are included, so the JSON is built once and reused.
 	 */
 	@Override
 	public String toString() {
-		var gsonBuilder = new GsonBuilder();
-		var gson = gsonBuilder.create();
-		var m = new HashMap<String,Object>();
-		m.put("height", getHeight());
-		m.put("width", getWidth());
-		m.put("tilemap", getTileMap());
-		m.put("tileTypes", tileTypeChars);
-		return gson.toJson(m);
+		var json = descriptor;
+		if(json == null)
+			descriptor = json = JsonSerialization.toJson(this);
+		return json;
 	}
 }
-
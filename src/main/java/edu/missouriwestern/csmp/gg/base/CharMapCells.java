@@ -0,0 +1,156 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+
+/** the cells of a board's char map, stored as one byte per cell rather than as tiles.
+ * Rows may have different lengths; cells past the end of a row are blank. Each byte is decoded to the
+ * map character it stands for with {@link #decode(int)}, and {@link #isTile(int)} tells whether that
+ * character is one of the board's tile characters.
+ */
+final class CharMapCells {
+	private final ByteBuffer cells;
+	private final int[] rowStart;   // offset in cells of each row
+	private final int[] rowLength;  // cells in each row
+	private final char[] decode;    // map character for each byte
+	private final boolean[] tile;   // whether each byte stands for a tile character
+	private final int width;
+	private final int height;
+
+	private CharMapCells(ByteBuffer cells, int[] rowStart, int[] rowLength, char[] decode, boolean[] tile,
+	                     int width, int height) {
+		this.cells = cells;
+		this.rowStart = rowStart;
+		this.rowLength = rowLength;
+		this.decode = decode;
+		this.tile = tile;
+		this.width = width;
+		this.height = height;
+	}
+
+	/** reads a char map, storing each tile character as a small code so any characters may be used.
+	 * @throws IllegalArgumentException if there are more than 255 tile characters
+	 */
+	static CharMapCells read(Reader charMap, Set<Character> tileChars) throws IOException {
+		if(tileChars.size() > 255)
+			throw new IllegalArgumentException("too many tile characters for a chunked board: " + tileChars.size());
+		var decode = new char[256];
+		var tile = new boolean[256];
+		var codes = new byte[Character.MAX_VALUE + 1];  // 0 for characters that are not tiles
+		int next = 1;
+		for(char c : tileChars) {
+			decode[next] = c;
+			tile[next] = true;
+			codes[c] = (byte)next++;
+		}
+
+		var bytes = new byte[1 << 16];
+		var rowStart = new int[64];
+		var rowLength = new int[64];
+		int size = 0, row = 0, column = 0, width = 0, height = 0;
+		var buffer = new char[8192];
+		for(int read; (read = charMap.read(buffer)) >= 0; ) {
+			for(int i = 0; i < read; i++) {
+				char c = buffer[i];
+				if(c == '\n') {
+					if(++row == rowStart.length) {
+						rowStart = Arrays.copyOf(rowStart, row * 2);
+						rowLength = Arrays.copyOf(rowLength, row * 2);
+					}
+					rowStart[row] = size;
+					column = 0;
+					continue;
+				}
+				if(size == bytes.length) {
+					if(size == Integer.MAX_VALUE - 8)
+						throw new IOException("char map is too large");
+					bytes = Arrays.copyOf(bytes, (int)Math.min(Integer.MAX_VALUE - 8, size * 2L));
+				}
+				bytes[size++] = codes[c];
+				rowLength[row] = ++column;
+				if(codes[c] != 0) {
+					width = Math.max(width, column);
+					height = row + 1;
+				}
+			}
+		}
+		return new CharMapCells(ByteBuffer.wrap(bytes, 0, size), rowStart, rowLength, decode, tile, width, height);
+	}
+
+	/** maps a char map file into memory without copying it. The file must use a single-byte encoding,
+	 * such as ASCII, and is expected not to change while the board is in use.
+	 * @throws IllegalArgumentException if a tile character does not fit in one byte
+	 */
+	static CharMapCells map(Path file, Set<Character> tileChars) throws IOException {
+		var isTile = new boolean[256];
+		for(char c : tileChars) {
+			if(c > 0x7f)
+				throw new IllegalArgumentException("tile character '" + c + "' is not ASCII, so the map cannot be memory-mapped");
+			isTile[c] = true;
+		}
+		var decode = new char[256];
+		for(int b = 0; b < 256; b++)
+			decode[b] = (char)b;
+
+		ByteBuffer cells;
+		try(var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("char map is too large to map: " + file);
+			cells = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		var rowStart = new int[64];
+		var rowLength = new int[64];
+		int row = 0, column = 0, width = 0, height = 0;
+		for(int i = 0, size = cells.limit(); i < size; i++) {
+			int b = cells.get(i) & 0xff;
+			if(b == '\n') {
+				if(++row == rowStart.length) {
+					rowStart = Arrays.copyOf(rowStart, row * 2);
+					rowLength = Arrays.copyOf(rowLength, row * 2);
+				}
+				rowStart[row] = i + 1;
+				column = 0;
+				continue;
+			}
+			rowLength[row] = ++column;
+			if(isTile[b]) {
+				width = Math.max(width, column);
+				height = row + 1;
+			}
+		}
+		return new CharMapCells(cells, rowStart, rowLength, decode, isTile, width, height);
+	}
+
+	/** one more than the largest column holding a tile */
+	int getWidth() {
+		return width;
+	}
+
+	/** one more than the largest row holding a tile */
+	int getHeight() {
+		return height;
+	}
+
+	/** returns the byte stored for the cell at column and row, or -1 if the row ends before it */
+	int get(int column, int row) {
+		if(column >= rowLength[row])
+			return -1;
+		return cells.get(rowStart[row] + column) & 0xff;
+	}
+
+	/** map character a byte stands for */
+	char decode(int b) {
+		return decode[b];
+	}
+
+	/** whether a byte returned by {@link #get(int, int)} stands for a tile */
+	boolean isTile(int b) {
+		return b >= 0 && tile[b];
+	}
+}
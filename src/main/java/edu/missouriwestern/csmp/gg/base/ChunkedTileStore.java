@@ -0,0 +1,236 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/** creates the tiles of a board a square chunk at a time, the first time a tile in the chunk is used.
+ * The board's layout is kept as {@link CharMapCells}, one byte per cell, so a chunk's tiles can be
+ * created again after they have been let go. Once more than a set number of chunks hold tiles, the
+ * chunk used least recently is let go, as long as it is cold: none of its tiles holds entities or has
+ * had its properties set. A chunk that was let go only holds its tiles weakly, and gets back every tile
+ * still referenced from elsewhere when it is used again, so each cell has the same tile for as long as
+ * anything can see it. Only tiles nobody holds are created anew.
+ */
+final class ChunkedTileStore implements TileStore {
+	static final int CHUNK_SHIFT = 6;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;  // width and height of a chunk, in tiles
+	private static final int MASK = CHUNK_SIZE - 1;
+
+	/** one square of the board */
+	private static final class Chunk {
+		final int column;  // of its top left tile
+		final int row;
+		volatile Tile[] tiles;            // null until created, and again once let go
+		TileReference[] released;         // tiles that were let go, until all are collected
+		int releasedCount;                // of those, how many have not been collected
+		volatile boolean modified;        // a tile's properties were set, so it is never let go
+		volatile long lastUsed;
+
+		Chunk(int column, int row) {
+			this.column = column;
+			this.row = row;
+		}
+	}
+
+	/** a tile of a chunk that was let go, cleared once nothing else refers to the tile */
+	private static final class TileReference extends WeakReference<Tile> {
+		final Chunk chunk;
+		final int index;
+
+		TileReference(Tile tile, Chunk chunk, int index, ReferenceQueue<Tile> queue) {
+			super(tile, queue);
+			this.chunk = chunk;
+			this.index = index;
+		}
+	}
+
+	private final Board board;
+	private final CharMapCells cells;
+	private final Map<Character,String> tileTypeChars;
+	private final Map<Character,Map<String,String>> tileTypeProperties;
+	private final Map<Integer,Map<String,String>> tileProperties;  // by row * width + column
+	private final int width;
+	private final int height;
+	private final int chunkColumns;
+	private final Chunk[] chunks;
+	private final List<Chunk> loaded = new ArrayList<>();
+	private final ReferenceQueue<Tile> collected = new ReferenceQueue<>();  // tiles of released chunks
+	private volatile int maxLoaded;
+	private long clock;  // counts chunk uses, to find the least recently used; updated without locking
+
+	ChunkedTileStore(Board board, CharMapCells cells, Map<Character,String> tileTypeChars,
+	                 Map<Character,Map<String,String>> tileTypeProperties,
+	                 Map<Integer,Map<String,String>> tileProperties, int maxLoaded) {
+		this.board = board;
+		this.cells = cells;
+		this.tileTypeChars = tileTypeChars;
+		this.tileTypeProperties = tileTypeProperties;
+		this.tileProperties = tileProperties;
+		this.width = cells.getWidth();
+		this.height = cells.getHeight();
+		this.chunkColumns = (width + MASK) >> CHUNK_SHIFT;
+		int chunkRows = (height + MASK) >> CHUNK_SHIFT;
+		this.chunks = new Chunk[chunkColumns * chunkRows];
+		for(int i = 0; i < chunks.length; i++)
+			chunks[i] = new Chunk((i % chunkColumns) << CHUNK_SHIFT, (i / chunkColumns) << CHUNK_SHIFT);
+		setMaxLoaded(maxLoaded);
+	}
+
+	/** sets how many chunks may hold tiles before cold chunks are let go */
+	void setMaxLoaded(int maxLoaded) {
+		if(maxLoaded < 1)
+			throw new IllegalArgumentException("at least one chunk must be loaded: " + maxLoaded);
+		this.maxLoaded = maxLoaded;
+	}
+
+	/** number of chunks currently holding tiles */
+	synchronized int getLoadedCount() {
+		return loaded.size();
+	}
+
+	private Chunk chunkOf(int column, int row) {
+		return chunks[(row >> CHUNK_SHIFT) * chunkColumns + (column >> CHUNK_SHIFT)];
+	}
+
+	@Override
+	public Tile get(int column, int row) {
+		var chunk = chunkOf(column, row);
+		var tiles = chunk.tiles;
+		if(tiles == null)
+			tiles = load(chunk);
+		chunk.lastUsed = ++clock;
+		return tiles[((row & MASK) << CHUNK_SHIFT) | (column & MASK)];
+	}
+
+	/** returns the tiles of every chunk in turn, creating them as they are reached */
+	@Override
+	public Stream<Tile> stream() {
+		return IntStream.range(0, chunks.length)
+				.mapToObj(i -> {
+					var tiles = chunks[i].tiles;
+					return tiles != null ? tiles : load(chunks[i]);
+				})
+				.flatMap(Arrays::stream)
+				.filter(Objects::nonNull);
+	}
+
+	@Override
+	public String getType(int column, int row) {
+		int b = cells.get(column, row);
+		return cells.isTile(b) ? tileTypeChars.get(cells.decode(b)) : null;
+	}
+
+	@Override
+	public void modified(Tile tile) {
+		chunkOf(tile.getColumn(), tile.getRow()).modified = true;
+	}
+
+	private synchronized Tile[] load(Chunk chunk) {
+		var tiles = chunk.tiles;
+		if(tiles != null)
+			return tiles;
+		forgetCollected();
+		tiles = create(chunk);
+		chunk.released = null;
+		chunk.lastUsed = ++clock;
+		chunk.tiles = tiles;
+		loaded.add(chunk);
+		if(loaded.size() > maxLoaded)
+			releaseColdest(chunk);
+		return tiles;
+	}
+
+	private Tile[] create(Chunk chunk) {
+		var tiles = new Tile[CHUNK_SIZE * CHUNK_SIZE];
+		int lastRow = Math.min(height, chunk.row + CHUNK_SIZE), lastColumn = Math.min(width, chunk.column + CHUNK_SIZE);
+		for(int row = chunk.row; row < lastRow; row++) {
+			for(int column = chunk.column; column < lastColumn; column++) {
+				int b = cells.get(column, row);
+				if(!cells.isTile(b))
+					continue;
+				int index = ((row & MASK) << CHUNK_SHIFT) | (column & MASK);
+				var kept = chunk.released == null || chunk.released[index] == null ? null : chunk.released[index].get();
+				if(kept != null) {
+					tiles[index] = kept;  // still referenced, so it must stay the tile for this cell
+					continue;
+				}
+				char c = cells.decode(b);
+				var properties = new HashMap<String,String>();
+				if(tileTypeProperties.containsKey(c))
+					properties.putAll(tileTypeProperties.get(c));
+				var overrides = tileProperties.get(row * width + column);
+				if(overrides != null)
+					properties.putAll(overrides);
+				if(!properties.containsKey("character"))
+					properties.put("character", "" + c);
+				tiles[index] = new Tile(board, column, row, tileTypeChars.get(c), properties);
+			}
+		}
+		return tiles;
+	}
+
+	/** lets go of the least recently used cold chunk other than the one just loaded, if there is one */
+	private void releaseColdest(Chunk keep) {
+		var rejected = new boolean[loaded.size()];
+		while(true) {
+			int coldest = -1;
+			long coldestUse = Long.MAX_VALUE;
+			for(int i = 0; i < rejected.length; i++) {
+				var chunk = loaded.get(i);
+				if(!rejected[i] && chunk != keep && !chunk.modified && chunk.lastUsed < coldestUse) {
+					coldest = i;
+					coldestUse = chunk.lastUsed;
+				}
+			}
+			if(coldest < 0)
+				return;  // every other chunk is in use, so more are kept than asked
+			var chunk = loaded.get(coldest);
+			if(!isEmpty(chunk)) {
+				rejected[coldest] = true;
+				continue;
+			}
+			loaded.remove(coldest);
+			var released = new TileReference[chunk.tiles.length];
+			int count = 0;
+			for(int i = 0; i < released.length; i++) {
+				if(chunk.tiles[i] != null) {
+					released[i] = new TileReference(chunk.tiles[i], chunk, i, collected);
+					count++;
+				}
+			}
+			chunk.released = count == 0 ? null : released;
+			chunk.releasedCount = count;
+			chunk.tiles = null;
+			return;
+		}
+	}
+
+	/** drops the references to released tiles that have been garbage collected */
+	private void forgetCollected() {
+		for(TileReference ref; (ref = (TileReference)collected.poll()) != null; ) {
+			var chunk = ref.chunk;
+			if(chunk.released == null || chunk.released[ref.index] != ref)
+				continue;  // the chunk has been loaded again since
+			chunk.released[ref.index] = null;
+			if(--chunk.releasedCount == 0)
+				chunk.released = null;
+		}
+	}
+
+	/** whether none of a chunk's tiles holds entities */
+	private boolean isEmpty(Chunk chunk) {
+		var game = board.getGame();
+		for(var tile : chunk.tiles)
+			if(tile != null && game.countEntities(tile) > 0)
+				return false;
+		return true;
+	}
+}
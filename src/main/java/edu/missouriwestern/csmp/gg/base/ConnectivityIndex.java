@@ -0,0 +1,185 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Arrays;
+
+/** groups the passable tiles of a board into regions of tiles that can reach one another.
+ * Regions are labelled once when the board's {@link Pathfinder} is created and then kept up to date as
+ * tiles change: a tile that opens up merges the regions around it in a union-find structure, and a tile
+ * that closes relabels the region it was in, which may split it. Whether two tiles are connected is
+ * then answered in constant time.
+ * <p>
+ * Region numbers identify regions only until the next change to passability.
+ * Get the index for a board with {@link Pathfinder#getConnectivityIndex()}.
+ */
+public final class ConnectivityIndex {
+	private final Pathfinder pathfinder;
+	private final int width;
+	private final int height;
+	private final int[] label;  // region each cell was labelled with, -1 where impassable
+	private int[] parent;       // union-find over labels; roots are the current regions
+	private int[] size;         // number of cells in each root region
+	private int labels;         // labels in use
+	private int regions;        // number of root regions with cells in them
+
+	ConnectivityIndex(Pathfinder pathfinder, int width, int height) {
+		this.pathfinder = pathfinder;
+		this.width = width;
+		this.height = height;
+		this.label = new int[width * height];
+	}
+
+	/** labels every region from scratch */
+	synchronized void rebuild() {
+		Arrays.fill(label, -1);
+		parent = new int[16];
+		size = new int[16];
+		labels = 0;
+		regions = 0;
+		var queue = new int[width * height];
+		for(int cell = 0; cell < label.length; cell++)
+			if(label[cell] < 0 && pathfinder.isPassable(cell % width, cell / width)) {
+				fill(cell, newLabel(), -1, queue);
+				regions++;
+			}
+	}
+
+	/** labels every cell connected to start whose label has the root old (or any cell, if old is -1) */
+	private void fill(int start, int id, int old, int[] queue) {
+		int head = 0, tail = 0;
+		queue[tail++] = start;
+		label[start] = id;
+		while(head < tail) {
+			int cell = queue[head++];
+			int column = cell % width, row = cell / width;
+			tail = visit(queue, tail, column, row - 1, id, old);
+			tail = visit(queue, tail, column, row + 1, id, old);
+			tail = visit(queue, tail, column - 1, row, id, old);
+			tail = visit(queue, tail, column + 1, row, id, old);
+		}
+		size[id] = tail;
+	}
+
+	private int visit(int[] queue, int tail, int column, int row, int id, int old) {
+		if(column < 0 || row < 0 || column >= width || row >= height)
+			return tail;
+		int cell = row * width + column;
+		if(label[cell] == id || !pathfinder.isPassable(column, row))
+			return tail;
+		if(old < 0 ? label[cell] >= 0 : find(label[cell]) != old)
+			return tail;
+		label[cell] = id;
+		queue[tail] = cell;
+		return tail + 1;
+	}
+
+	private int newLabel() {
+		if(labels == parent.length) {
+			parent = Arrays.copyOf(parent, labels * 2);
+			size = Arrays.copyOf(size, labels * 2);
+		}
+		parent[labels] = labels;
+		size[labels] = 0;
+		return labels++;
+	}
+
+	private int find(int id) {
+		while(parent[id] != id)
+			id = parent[id];
+		return id;
+	}
+
+	/** updates regions after a cell became passable or impassable */
+	synchronized void cellChanged(int column, int row, boolean passable) {
+		if(labels > 4 * label.length) {  // too many labels left behind by splits
+			rebuild();
+			return;
+		}
+		int cell = row * width + column;
+		int[] neighbours = {cell - width, cell + width, cell - 1, cell + 1};
+		boolean[] valid = {row > 0, row < height - 1, column > 0, column < width - 1};
+		if(passable) {
+			int joined = -1;
+			for(int i = 0; i < 4; i++) {
+				if(!valid[i] || label[neighbours[i]] < 0)
+					continue;
+				int root = find(label[neighbours[i]]);
+				if(joined < 0)
+					joined = root;
+				else if(root != joined) {  // union by size
+					int small = size[root] < size[joined] ? root : joined, large = small == root ? joined : root;
+					parent[small] = large;
+					size[large] += size[small];
+					joined = large;
+					regions--;
+				}
+			}
+			if(joined < 0) {
+				joined = newLabel();
+				regions++;
+			}
+			label[cell] = joined;
+			size[joined]++;
+		} else {
+			if(label[cell] < 0)
+				return;
+			int old = find(label[cell]);
+			label[cell] = -1;
+			size[old]--;
+			int remaining = 0;
+			for(int i = 0; i < 4; i++)
+				if(valid[i] && label[neighbours[i]] >= 0)
+					remaining++;
+			if(remaining == 0) {
+				regions--;
+				return;
+			}
+			if(remaining == 1)
+				return;  // a cell with one open neighbour cannot have joined anything
+			// relabel what is left of the old region from each neighbour, which finds any split
+			var queue = new int[size[old]];
+			int pieces = 0;
+			for(int i = 0; i < 4; i++) {
+				if(!valid[i] || label[neighbours[i]] < 0 || find(label[neighbours[i]]) != old)
+					continue;
+				fill(neighbours[i], newLabel(), old, queue);
+				pieces++;
+			}
+			size[old] = 0;
+			regions += pieces - 1;
+		}
+	}
+
+	/** returns the region holding the tile at column and row, or -1 if it is impassable */
+	public int getRegion(int column, int row) {
+		if(column < 0 || row < 0 || column >= width || row >= height)
+			return -1;
+		synchronized(this) {
+			int id = label[row * width + column];
+			return id < 0 ? -1 : find(id);
+		}
+	}
+
+	/** returns the region holding tile, or -1 if it is impassable or on another board */
+	public int getRegion(Tile tile) {
+		if(tile.getBoard() != pathfinder.getBoard())
+			return -1;
+		return getRegion(tile.getColumn(), tile.getRow());
+	}
+
+	/** returns whether an entity could walk from one tile to the other */
+	public boolean isConnected(Tile from, Tile to) {
+		int region = getRegion(from);
+		return region >= 0 && region == getRegion(to);
+	}
+
+	/** number of tiles in the region holding tile, or 0 if it is impassable */
+	public synchronized int getRegionSize(Tile tile) {
+		int region = getRegion(tile);
+		return region < 0 ? 0 : size[region];
+	}
+
+	/** number of separate regions on the board */
+	public synchronized int getRegionCount() {
+		return regions;
+	}
+}
@@ -1,4 +1,5 @@
 package edu.missouriwestern.csmp.gg.base;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -28,13 +29,24 @@ public interface Container {
 
 	/**
 	 * returns all entities in container.
-	 * @return HashSet of all entities. 
+	 * @return stream of all entities.
 	 */
 	public default Stream<Entity> getEntities() {
 		return getGame().getContainerContents(this);
 	}
 
-	public default boolean isEmpty() { return !getEntities().findAny().isPresent(); }
+	/**
+	 * Applies action to each entity in container without copying the contents.
+	 * @param action action to apply.
+	 */
+	public default void forEachEntity(Consumer<? super Entity> action) {
+		getGame().forEachEntity(this, action);
+	}
+
+	/** returns the number of entities in container */
+	public default int countEntities() { return getGame().countEntities(this); }
+
+	public default boolean isEmpty() { return countEntities() == 0; }
 
 	public default boolean containsEntity(Entity ent) {
 		return getGame().containsEntity(this, ent);
@@ -0,0 +1,113 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/** records which {@link Container} holds each {@link Entity}.
+ * The entity-to-container map is authoritative: each entity maps to exactly one container, and
+ * {@link #locate(Entity)} and {@link #contains(Container, Entity)} read it directly without locking.
+ * Moves of the same entity are serialized on one of a fixed set of lock stripes chosen by entity ID,
+ * so moves of different entities rarely contend. The per-container sets are updated under the same
+ * stripe, so while an entity is being moved a reader of container contents may briefly see it in both
+ * its old and new containers. Entities moved on or off tiles are also recorded in their boards'
+ * {@link SpatialIndex}es under the same stripe.
+ * <p>
+ * A container's set is dropped once it is empty, so containers and tiles that no longer hold anything
+ * are not kept reachable by the index. Sets are created and dropped atomically with the entities added
+ * to and removed from them, since entities in the same container may be moved under different stripes.
+ */
+final class ContainmentIndex {
+
+	private static final int STRIPES = 64;  // must be a power of two
+
+	private final Object[] stripes = new Object[STRIPES];
+	private final Map<Entity, Container> locations = new ConcurrentHashMap<>();
+	private final Map<Container, Set<Entity>> contents = new ConcurrentHashMap<>();
+
+	ContainmentIndex() {
+		for(int i = 0; i < STRIPES; i++)
+			stripes[i] = new Object();
+	}
+
+	/** places ent in container
+	 * @return the container that held ent before, or null if it was not held by any */
+	Container move(Entity ent, Container container) {
+		synchronized(stripe(ent)) {
+			var previous = locations.put(ent, container);
+			if(previous != container) {
+				contents.compute(container, (c, entities) -> {
+					if(entities == null)
+						entities = ConcurrentHashMap.newKeySet();
+					entities.add(ent);
+					return entities;
+				});
+				if(previous != null)
+					removeContent(previous, ent);
+				if(previous instanceof Tile && !(container instanceof Tile
+						&& ((Tile)container).getBoard() == ((Tile)previous).getBoard()))
+					((Tile)previous).getBoard().getSpatialIndex().remove(ent);
+				if(container instanceof Tile) {
+					var tile = (Tile)container;
+					tile.getBoard().getSpatialIndex().put(ent, tile.getColumn(), tile.getRow());
+				}
+			}
+			return previous;
+		}
+	}
+
+	/** forgets ent entirely
+	 * @return the container that held ent, or null if it was not held by any */
+	Container remove(Entity ent) {
+		synchronized(stripe(ent)) {
+			var previous = locations.remove(ent);
+			if(previous != null)
+				removeContent(previous, ent);
+			if(previous instanceof Tile)
+				((Tile)previous).getBoard().getSpatialIndex().remove(ent);
+			return previous;
+		}
+	}
+
+	/** returns the container holding ent, or null if it is not held by any */
+	Container locate(Entity ent) {
+		return locations.get(ent);
+	}
+
+	boolean contains(Container container, Entity ent) {
+		return locations.get(ent) == container;
+	}
+
+	/** returns the entities held by container. The stream reflects moves made while it is consumed, unless
+	 * the container is emptied meanwhile. */
+	Stream<Entity> contents(Container container) {
+		var entities = contents.get(container);
+		return entities == null ? Stream.empty() : entities.stream();
+	}
+
+	/** applies action to each entity held by container without copying the contents */
+	void forEach(Container container, Consumer<? super Entity> action) {
+		var entities = contents.get(container);
+		if(entities != null)
+			entities.forEach(action);
+	}
+
+	/** returns the number of entities held by container */
+	int count(Container container) {
+		var entities = contents.get(container);
+		return entities == null ? 0 : entities.size();
+	}
+
+	private void removeContent(Container container, Entity ent) {
+		contents.computeIfPresent(container, (c, entities) -> {
+			entities.remove(ent);
+			return entities.isEmpty() ? null : entities;
+		});
+	}
+
+	private Object stripe(Entity ent) {
+		return stripes[ent.getID() & (STRIPES - 1)];
+	}
+}
@@ -1,9 +1,14 @@
 package edu.missouriwestern.csmp.gg.base;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Interface for a container that can hold entities.
+ * The bulk operations let a store answer many requests in one round trip; their default
+ * implementations simply repeat the single-object operations.
  */
 public interface DataStore {
 	public void save(HasProperties object);
@@ -14,4 +19,42 @@ public interface DataStore {
 
 	/** returns the largest entity id in the database */
 	public int getMaxEntityId();
+
+	/** saves every object in objects */
+	public default void saveAll(Collection<? extends HasProperties> objects) {
+		for(var object : objects)
+			save(object);
+	}
+
+	/** saves only the changed properties of object.
+	 * @param changes the new values of the properties changed since object was last saved
+	 */
+	public default void saveChanges(HasProperties object, Map<String,String> changes) {
+		save(object);
+	}
+
+	/** saves the changed properties of each object in changes */
+	public default void saveAllChanges(Map<? extends HasProperties, Map<String,String>> changes) {
+		changes.forEach(this::saveChanges);
+	}
+
+	/** runs a {@link #search(Map)} for each query, returning the results in the same order */
+	public default List<ArrayList<Integer>> searchAll(List<? extends Map<String,String>> queries) {
+		var results = new ArrayList<ArrayList<Integer>>(queries.size());
+		for(var query : queries)
+			results.add(search(query));
+		return results;
+	}
+
+	/** returns the stored properties of each of the specified entities, not including their ids.
+	 * Entities with nothing stored are mapped to empty maps. */
+	public default Map<Integer,Map<String,String>> loadAll(Collection<Integer> entityIds) {
+		var loaded = new HashMap<Integer,Map<String,String>>();
+		for(var id : entityIds) {
+			var record = new PropertyRecord(id);
+			load(record);
+			loaded.put(id, record.getLoadedProperties());
+		}
+		return loaded;
+	}
 }
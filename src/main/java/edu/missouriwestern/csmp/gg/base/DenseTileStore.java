@@ -0,0 +1,32 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/** keeps every tile of a board in one array */
+final class DenseTileStore implements TileStore {
+	private final Tile[] tiles;  // row-major, null where there is no tile
+	private final int width;
+
+	DenseTileStore(Tile[] tiles, int width) {
+		this.tiles = tiles;
+		this.width = width;
+	}
+
+	@Override
+	public Tile get(int column, int row) {
+		return tiles[row * width + column];
+	}
+
+	@Override
+	public Stream<Tile> stream() {
+		return Arrays.stream(tiles).filter(Objects::nonNull);
+	}
+
+	@Override
+	public String getType(int column, int row) {
+		var tile = tiles[row * width + column];
+		return tile == null ? null : tile.getTypeName();
+	}
+}
@@ -0,0 +1,21 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.nio.ByteBuffer;
+
+/** listener that forwards events to clients in serialized form.
+ * Each event is handed over together with its UTF-8 JSON encoding from {@link Event#getEncoded()},
+ * which is computed once per event however many listeners receive it.
+ */
+public interface EncodedEventListener extends EventListener {
+
+	/** handles an event
+	 * @param event the event
+	 * @param encoded read-only view of the event's shared JSON encoding, positioned at its start
+	 */
+	public void accept(Event event, ByteBuffer encoded);
+
+	@Override
+	public default void accept(Event event) {
+		accept(event, event.getEncoded());
+	}
+}
@@ -1,10 +1,10 @@
 package edu.missouriwestern.csmp.gg.base;
 
-import com.google.gson.GsonBuilder;
-
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /** a class representing tile-occupying entities in the game */
@@ -13,6 +13,7 @@ public abstract class Entity implements HasProperties {
 	private final Game game;
 	private Direction heading;
 	private final Map<String,String> properties;
+	private final Set<String> changedProperties = ConcurrentHashMap.newKeySet();  // not yet persisted
 
 	/**
 	 * Constructs Entity from a {@link Game}
@@ -20,8 +21,8 @@ public abstract class Entity implements HasProperties {
 	 */
 	public Entity(Game game, Map<String,String> properties) {
 		this.game = game;
-		this.id = game.getEntityId(this);
 		this.properties = new ConcurrentHashMap<>(properties);
+		this.id = game.allocateEntityId(this, this.properties);
 		game.addEntity(this);
 	}
 
@@ -37,9 +38,37 @@ public abstract class Entity implements HasProperties {
 		return Collections.unmodifiableMap(properties);
 	}
 
+	/** properties of this entity, not including its id */
+	Map<String,String> getOwnProperties() {
+		return properties;
+	}
+
+	/** sets a property, recording the change to be persisted if this entity is {@link Permanent} */
 	@Override
 	public void setProperty(String key, String value) {
 		properties.put(key, value);
+		if(getClass().isAnnotationPresent(Permanent.class))
+			markChanged(Set.of(key));
+	}
+
+	/** records properties as changed since they were last persisted */
+	void markChanged(Collection<String> keys) {
+		changedProperties.addAll(keys);
+		game.markDirty(this);
+	}
+
+	/** returns the current values of the properties changed since the last call, forgetting the changes */
+	Map<String,String> takeChanges() {
+		var changes = new HashMap<String,String>();
+		for(var key : changedProperties)
+			if(changedProperties.remove(key) && properties.containsKey(key))
+				changes.put(key, properties.get(key));
+		return changes;
+	}
+
+	/** forgets changes, for instance after the properties were loaded from the data store */
+	void clearChanges() {
+		changedProperties.clear();
 	}
 
 	/**
@@ -78,24 +107,7 @@ public abstract class Entity implements HasProperties {
 	 */
 	@Override
 	public String toString() {
-		var gsonBuilder = new GsonBuilder();
-		var gson = gsonBuilder.create();
-		var m = new HashMap<String,Object>();
-		var location = game.getEntityLocation(this);
-		var container = game.getEntityLocation(this);
-		if(location instanceof Tile) {
-			Tile tile = (Tile)container;
-			m.put("board", tile.getBoard().getName());
-			m.put("column", tile.getColumn());
-			m.put("row", tile.getRow());
-			m.put("heading", getHeading());
-		} else if(container instanceof Entity) {
-			m.put("container", ((Entity)container).getID());
-		}
-		m.put("id", getID());
-		m.put("type", getType());
-		m.put("properties", properties);
-		return gson.toJson(m);
+		return JsonSerialization.toJson(this);
 	}
 	
 }
@@ -0,0 +1,96 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/** maps entity IDs to the entities registered with a game.
+ * IDs index directly into fixed-size chunks of a table that grows as needed, so looking up an entity
+ * by ID takes no lock and boxes nothing. Since every entity carries its own ID, finding the ID of an
+ * entity is a single lookup that checks the entity found is the same object.
+ * Writers synchronize on the registry, and publish new chunks and tables atomically, so readers never see
+ * one partly built.
+ * <p>
+ * The table is sized by the largest ID in use, so IDs are expected to be mostly dense.
+ */
+final class EntityRegistry {
+
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private volatile AtomicReferenceArray<AtomicReferenceArray<Entity>> chunks = new AtomicReferenceArray<>(0);
+	private final AtomicInteger size = new AtomicInteger();
+
+	/** returns the entity registered with the specified ID, or null if there is none */
+	Entity get(int id) {
+		if(id < 0)
+			return null;
+		var chunks = this.chunks;
+		int index = id >>> CHUNK_BITS;
+		var chunk = index < chunks.length() ? chunks.get(index) : null;
+		return chunk == null ? null : chunk.get(id & CHUNK_MASK);
+	}
+
+	/** returns whether this exact entity is registered under its ID */
+	boolean contains(Entity ent) {
+		return get(ent.getID()) == ent;
+	}
+
+	/** registers ent under the specified ID.
+	 * @throws IllegalStateException if a different entity is already registered with that ID */
+	synchronized void put(int id, Entity ent) {
+		if(id < 0)
+			throw new IllegalArgumentException("entity IDs must not be negative: " + id);
+		var previous = chunk(id).getAndSet(id & CHUNK_MASK, ent);
+		if(previous == null) {
+			size.incrementAndGet();
+		} else if(previous != ent) {
+			chunk(id).set(id & CHUNK_MASK, previous);
+			throw new IllegalStateException("entity ID " + id + " is already in use");
+		}
+	}
+
+	/** unregisters ent if it is registered under the specified ID
+	 * @return true if the entity was removed */
+	synchronized boolean remove(int id, Entity ent) {
+		if(get(id) != ent)
+			return false;
+		chunks.get(id >>> CHUNK_BITS).set(id & CHUNK_MASK, null);
+		size.decrementAndGet();
+		return true;
+	}
+
+	/** number of registered entities */
+	int size() {
+		return size.get();
+	}
+
+	/** returns all registered entities in order of ID */
+	Stream<Entity> stream() {
+		var chunks = this.chunks;
+		return IntStream.range(0, chunks.length())
+				.mapToObj(chunks::get)
+				.filter(Objects::nonNull)
+				.flatMap(chunk -> IntStream.range(0, CHUNK_SIZE).mapToObj(chunk::get))
+				.filter(Objects::nonNull);
+	}
+
+	/** returns the chunk holding id, creating it and growing the table as needed; called only by writers */
+	private AtomicReferenceArray<Entity> chunk(int id) {
+		int index = id >>> CHUNK_BITS;
+		var chunks = this.chunks;
+		if(index >= chunks.length()) {
+			// filled before it is published, so readers see either the old table or the whole new one
+			var grown = new AtomicReferenceArray<AtomicReferenceArray<Entity>>(Math.max(index + 1, chunks.length() * 2));
+			for(int i = 0; i < chunks.length(); i++)
+				grown.set(i, chunks.get(i));
+			this.chunks = chunks = grown;
+		}
+		if(chunks.get(index) == null)
+			chunks.compareAndSet(index, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+		return chunks.get(index);
+	}
+}
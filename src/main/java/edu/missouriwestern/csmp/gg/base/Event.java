@@ -1,7 +1,7 @@
 package edu.missouriwestern.csmp.gg.base;
 
-import com.google.gson.GsonBuilder;
-
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,18 +14,22 @@ import java.util.Map;
  */
 public class Event implements HasProperties {
 
-    private final Map<String,String> properties;
+    private volatile Map<String,String> properties;  // built on first use when not given to the constructor
     private final int id;
     private final Game game;
     private final long eventTime;
+    private volatile ByteBuffer encoded;  // UTF-8 JSON, computed on first use
 
+    /** creates an event whose properties are supplied by {@link #addProperties(Map)} when first needed */
     public Event(Game game) {
-        this(game, game.getNextEventId(), new HashMap<>());
+        this(game, game.getNextEventId());
     }
 
     // TODO: eliminate this
     public Event(Game game, int id) {
-        this(game, id, new HashMap<>());
+        this.id = id;
+        this.game = game;
+        this.eventTime = game.getGameTime();
     }
 
     public Event(Game game, Map<String,String> properties) {
@@ -42,16 +46,36 @@ public class Event implements HasProperties {
         this.properties = Collections.unmodifiableMap(properties);
     }
 
+    /** returns the properties of this event, including its id.
+     * For events that keep their information in fields, the map is only built the first time it is asked for.
+     */
     @Override
     public Map<String, String> getProperties() {
+        var properties = this.properties;
+        if(properties == null) {
+            var m = new HashMap<String,String>();
+            addProperties(m);
+            m.put("id", Integer.toString(id));
+            this.properties = properties = Collections.unmodifiableMap(m);
+        }
         return properties;
     }
 
+    /** adds the properties describing this event to m.
+     * Subclasses that keep their information in fields override this instead of passing a map to the constructor.
+     */
+    protected void addProperties(Map<String,String> m) { }
+
     @Override
     public void setProperty(String key, String value) {
         throw new UnsupportedOperationException("Event properties are immutable");
     }
 
+    /** returns the ID of this event, unique within its game and increasing in the order events are issued */
+    public int getId() {
+        return id;
+    }
+
     /** time elapsed since start of game when this event occurred */
     public long getEventTime() {
         return eventTime;
@@ -61,14 +85,20 @@ public class Event implements HasProperties {
         return game;
     }
 
+    /** returns this event's JSON representation encoded as UTF-8.
+     * The encoding is computed the first time it is needed and shared by every caller afterwards, so an event
+     * sent to many clients is only serialized once. Each call returns a new read-only view of the shared bytes,
+     * with its own position and limit, suitable for gathering writes to a channel.
+     */
+    public ByteBuffer getEncoded() {
+        var buffer = encoded;
+        if(buffer == null)
+            encoded = buffer = ByteBuffer.wrap(JsonSerialization.toUtf8(this)).asReadOnlyBuffer();
+        return buffer.duplicate();
+    }
+
+    /** returns a JSON representation of this event and its properties */
     public String toString() {
-            var gsonBuilder = new GsonBuilder();
-            var gson = gsonBuilder.create();
-            var m = new HashMap<String,Object>();
-            m.put("id", id);
-            m.put("time", getEventTime());
-            m.put("type", getClass().getSimpleName());
-            m.put("properties", getProperties());
-            return gson.toJson(m);
+        return StandardCharsets.UTF_8.decode(getEncoded()).toString();
     }
 }
@@ -0,0 +1,77 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.EntityCreationEvent;
+import edu.missouriwestern.csmp.gg.base.events.EntityDeletionEvent;
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** events held back while a {@link Game#batch(Runnable)} is running.
+ * When the batch finishes, the events are coalesced so each entity produces at most one move:
+ * <ul>
+ * <li>all moves of an entity collapse into one event, from where it was before the batch,
+ *     published where the entity's last move was. If the entity ends up where it started, no move is published.</li>
+ * <li>moves of entities deleted during the batch are dropped.</li>
+ * <li>entities both created and deleted during the batch produce no events at all.</li>
+ * </ul>
+ * All other events are published unchanged and in their original order.
+ */
+final class EventBatch {
+
+	private final List<Event> events = new ArrayList<>();
+
+	void add(Event event) {
+		events.add(event);
+	}
+
+	List<Event> coalesce() {
+		Map<Entity, EntityMovedEvent> firstMoves = new IdentityHashMap<>();
+		Map<Entity, EntityMovedEvent> lastMoves = new IdentityHashMap<>();
+		Set<Entity> created = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<Entity> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(var event : events) {
+			if(event instanceof EntityMovedEvent) {
+				var move = (EntityMovedEvent)event;
+				firstMoves.putIfAbsent(move.getEntity(), move);
+				lastMoves.put(move.getEntity(), move);
+			} else if(event instanceof EntityCreationEvent) {
+				created.add(((EntityCreationEvent)event).getEntity());
+			} else if(event instanceof EntityDeletionEvent) {
+				deleted.add(((EntityDeletionEvent)event).getEntity());
+			}
+		}
+
+		var coalesced = new ArrayList<Event>(events.size());
+		for(var event : events) {
+			if(event instanceof EntityMovedEvent) {
+				var move = (EntityMovedEvent)event;
+				var ent = move.getEntity();
+				if(deleted.contains(ent) || lastMoves.get(ent) != move)
+					continue;
+				var first = firstMoves.get(ent);
+				if(first == move) {
+					coalesced.add(move);
+				} else if(move.getNewContainer() != first.getPreviousContainer()) {
+					// keep the last move's ID so event IDs still increase in publication order
+					coalesced.add(new EntityMovedEvent(ent, first.getPreviousContainer(), move.getNewContainer(), move.getId()));
+				}
+			} else if(event instanceof EntityCreationEvent) {
+				var ent = ((EntityCreationEvent)event).getEntity();
+				if(!deleted.contains(ent))
+					coalesced.add(event);
+			} else if(event instanceof EntityDeletionEvent) {
+				var ent = ((EntityDeletionEvent)event).getEntity();
+				if(!created.contains(ent))
+					coalesced.add(event);
+			} else {
+				coalesced.add(event);
+			}
+		}
+		return coalesced;
+	}
+}
@@ -0,0 +1,22 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Collection;
+
+/** strategy used by {@link Game} to deliver events to its registered listeners.
+ * Implementations decide which thread each listener is called on, but must deliver events to any
+ * single listener in the order they were dispatched.
+ */
+public interface EventDispatcher {
+
+	/** delivers event to each of the given listeners */
+	public void dispatch(Event event, Collection<EventListener> listeners);
+
+	/** called when a listener is registered, so that a listener released earlier is sent events again */
+	public default void register(EventListener listener) { }
+
+	/** called when a listener is deregistered so that anything held on its behalf can be released */
+	public default void release(EventListener listener) { }
+
+	/** stops delivering events and releases any threads owned by this dispatcher */
+	public default void shutdown() { }
+}
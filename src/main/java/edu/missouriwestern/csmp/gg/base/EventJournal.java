@@ -0,0 +1,323 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.EntityDeletionEvent;
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/** listener that appends every event it receives to a journal on disk.
+ * The journal is a directory of memory-mapped segment files, each holding events in the compact form
+ * written by {@link BinaryEventCodec}. Segments are named after the ID of their first event, so reading
+ * from a given event can skip whole segments.
+ * <p>
+ * Events are encoded and written by a background thread, so accept never waits on the disk. The writer
+ * takes whatever has queued up since its last write, appends it, and forces it to disk once for the whole
+ * group. Call {@link #flush()} to wait until everything accepted so far is durable.
+ * <p>
+ * Register a journal with {@link Game#registerListener(EventListener)} to record every game event.
+ * Events sent only to a {@link Board}'s listeners are not recorded.
+ */
+public class EventJournal implements EventListener, Closeable {
+	private static Logger logger = Logger.getLogger(EventJournal.class.getCanonicalName());
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	private static final int MAGIC = 0x47474a31;  // "GGJ1"
+	private static final int HEADER_SIZE = 4;
+	private static final int MAX_GROUP = 4096;     // most events written between forces
+	private static final String SUFFIX = ".journal";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final LinkedBlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	// written only by the writer thread
+	private MappedByteBuffer segment;
+	private BinaryEventCodec.Encoder encoder;
+	// progress, protected by this journal's monitor
+	private long accepted = 0;
+	private long durable = 0;
+	private boolean closed = false;
+	private IOException failure;
+
+	/** starts a journal in directory, creating the directory if needed */
+	public EventJournal(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param directory directory holding the segment files; new segments are added after existing ones
+	 * @param segmentSize size in bytes of each segment file
+	 */
+	public EventJournal(Path directory, int segmentSize) throws IOException {
+		if(segmentSize < 1024)
+			throw new IllegalArgumentException("segment size too small: " + segmentSize);
+		Files.createDirectories(directory);
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.writer = new Thread(this::writeLoop, "event-journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/** queues event to be appended to the journal
+	 * @throws UncheckedIOException if the journal has stopped writing because of an earlier failure
+	 */
+	@Override
+	public void accept(Event event) {
+		synchronized(this) {
+			if(closed)
+				throw new IllegalStateException("journal is closed");
+			if(failure != null)
+				throw new UncheckedIOException("journal stopped writing", failure);
+			accepted++;
+		}
+		queue.add(event);
+	}
+
+	/** waits until every event accepted before this call has been forced to disk */
+	public void flush() throws IOException {
+		synchronized(this) {
+			long target = accepted;
+			while(durable < target && failure == null) {
+				try {
+					wait();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while flushing journal", e);
+				}
+			}
+			if(failure != null)
+				throw failure;
+		}
+	}
+
+	/** writes out everything accepted so far and stops the writer thread */
+	@Override
+	public void close() throws IOException {
+		synchronized(this) {
+			if(closed)
+				return;
+			closed = true;
+		}
+		flush();
+		writer.interrupt();
+		try {
+			writer.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLoop() {
+		var group = new ArrayList<Event>();
+		try {
+			while(true) {
+				group.add(queue.take());
+				queue.drainTo(group, MAX_GROUP - 1);
+				for(var event : group)
+					append(event);
+				segment.force();
+				synchronized(this) {
+					durable += group.size();
+					notifyAll();
+				}
+				group.clear();
+			}
+		} catch(InterruptedException e) {
+			// closed
+		} catch(IOException | RuntimeException e) {
+			logger.log(Level.SEVERE, "event journal stopped writing", e);
+			synchronized(this) {
+				failure = e instanceof IOException ? (IOException)e : new IOException(e);
+				notifyAll();
+			}
+			queue.clear();  // nothing more will be written
+		}
+	}
+
+	private void append(Event event) throws IOException {
+		if(segment == null)
+			startSegment(event.getId());
+		if(encodeInPlace(event))
+			return;
+		segment.force();
+		startSegment(event.getId());  // the new segment starts with an empty intern table
+		if(!encodeInPlace(event))
+			throw new IOException("event " + event.getId() + " is too large for a journal segment");
+	}
+
+	/** encodes event straight into the segment after its length, returning false if it does not fit.
+	 * An event that does not fit leaves its length as zero, which marks the end of the segment. */
+	private boolean encodeInPlace(Event event) {
+		int start = segment.position();
+		if(segment.remaining() < 4 + 4)
+			return false;
+		var out = segment.duplicate();
+		out.limit(segment.limit() - 4).position(start + 4);  // leave room for the end marker
+		try {
+			encoder.encode(event, out);
+		} catch(BufferOverflowException e) {
+			return false;
+		}
+		segment.putInt(start, out.position() - start - 4);
+		segment.position(out.position());
+		return true;
+	}
+
+	private void startSegment(int firstEventId) throws IOException {
+		var path = directory.resolve(segmentName(firstEventId));
+		for(int attempt = 1; Files.exists(path); attempt++)  // events may repeat IDs after a restart
+			path = directory.resolve(segmentName(firstEventId) + "." + attempt);
+		try(var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		segment.putInt(MAGIC);
+		encoder = new BinaryEventCodec.Encoder();
+	}
+
+	private static String segmentName(int firstEventId) {
+		return String.format("%010d", firstEventId) + SUFFIX;
+	}
+
+	/** reads every journaled event with an ID of at least fromEventId, in the order they were written.
+	 * Segments are read in order of the ID of their first event, and those that can only hold earlier
+	 * events are skipped without being read. An ID journaled more than once, by a game restarted without
+	 * {@link #fastForward} moving its event IDs on, is only passed to consumer the first time it is read.
+	 * @param directory journal directory
+	 * @param fromEventId ID of the first event of interest
+	 * @param consumer receives each event
+	 */
+	public static void read(Path directory, int fromEventId, Consumer<EventRecord> consumer) throws IOException {
+		var segments = listSegments(directory);
+		var seen = new BitSet();  // by ID - fromEventId
+		for(int i = 0; i < segments.size(); i++) {
+			if(i + 1 < segments.size() && firstEventId(segments.get(i + 1)) <= fromEventId
+					&& firstEventId(segments.get(i + 1)) > firstEventId(segments.get(i)))
+				continue;  // the next segment starts at or before the first event of interest
+			readSegment(segments.get(i), fromEventId, record -> {
+				int offset = record.getId() - fromEventId;
+				if(!seen.get(offset)) {
+					seen.set(offset);
+					consumer.accept(record);
+				}
+			});
+		}
+	}
+
+	/** brings game up to date by applying the journaled moves and deletions with an ID of at least fromEventId.
+	 * Entities must already exist in game with the IDs they were journaled with, for instance because the
+	 * game was restored from a snapshot taken when fromEventId was the next event ID. Creations cannot be
+	 * replayed, as the journal does not record how to construct entities, and tile property changes are
+	 * not journaled. The changes are applied as one {@link Game#batch(Runnable) batch}.
+	 * <p>
+	 * Before anything is applied, the game's event IDs are moved past every ID in the journal, so the
+	 * events issued while catching up, and all later ones, do not reuse IDs already journaled.
+	 * @return the number of events applied
+	 */
+	public static int fastForward(Path directory, Game game, int fromEventId) throws IOException {
+		var records = new ArrayList<EventRecord>();
+		read(directory, fromEventId, records::add);
+		int last = fromEventId - 1;
+		for(var record : records)
+			last = Math.max(last, record.getId());
+		game.advanceEventIds(last + 1);
+		var applied = new int[1];
+		game.batch(() -> {
+			for(var record : records)
+				if(apply(game, record))
+					applied[0]++;
+		});
+		return applied[0];
+	}
+
+	private static boolean apply(Game game, EventRecord record) {
+		var properties = record.getProperties();
+		if(record.getType().equals(EntityMovedEvent.class.getSimpleName())) {
+			var ent = game.getEntity(Integer.parseInt(properties.get("entity")));
+			if(ent == null)
+				return false;
+			Container destination = game;
+			if(properties.containsKey("to-board")) {
+				var board = game.getBoard(properties.get("to-board"));
+				destination = board == null ? null : board.getTile(
+						Integer.parseInt(properties.get("to-column")), Integer.parseInt(properties.get("to-row")));
+			} else if(properties.containsKey("to-container")) {
+				var container = game.getEntity(Integer.parseInt(properties.get("to-container")));
+				destination = container instanceof Container ? (Container)container : null;
+			}
+			if(destination == null || game.getEntityLocation(ent) == destination)
+				return false;
+			game.moveEntity(ent, destination);
+			return true;
+		} else if(record.getType().equals(EntityDeletionEvent.class.getSimpleName())) {
+			var ent = game.getEntity(Integer.parseInt(properties.get("entity")));
+			if(ent == null)
+				return false;
+			game.removeEntity(ent);
+			return true;
+		}
+		return false;
+	}
+
+	private static void readSegment(Path path, int fromEventId, Consumer<EventRecord> consumer) throws IOException {
+		MappedByteBuffer segment;
+		try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if(segment.remaining() < HEADER_SIZE || segment.getInt() != MAGIC)
+			throw new IOException(path + " is not a journal segment");
+		var decoder = new BinaryEventCodec.Decoder();
+		while(segment.remaining() >= 4) {
+			int length = segment.getInt();
+			if(length == 0)
+				break;  // end of written data; the rest of the segment is zero filled
+			var record = segment.slice();
+			record.limit(length);
+			segment.position(segment.position() + length);
+			var event = decoder.decode(record);  // decoded even if skipped, to keep the intern table in step
+			if(event.getId() >= fromEventId)
+				consumer.accept(event);
+		}
+	}
+
+	/** lists the segments by the ID of their first event, and those starting at the same ID in the order
+	 * they were created */
+	private static List<Path> listSegments(Path directory) throws IOException {
+		try(var files = Files.list(directory)) {
+			return files.filter(p -> p.getFileName().toString().contains(SUFFIX))
+					.sorted(Comparator.comparingInt(EventJournal::firstEventId)
+							.thenComparingInt(EventJournal::attempt))
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static int firstEventId(Path segment) {
+		var name = segment.getFileName().toString();
+		return Integer.parseInt(name.substring(0, name.indexOf(SUFFIX)));
+	}
+
+	/** 0 for the first segment starting at its ID, n for the one named with ".n" after it */
+	private static int attempt(Path segment) {
+		var name = segment.getFileName().toString();
+		int end = name.indexOf(SUFFIX) + SUFFIX.length();
+		return end == name.length() ? 0 : Integer.parseInt(name.substring(end + 1));
+	}
+}
@@ -0,0 +1,61 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/** the information carried by an {@link Event}, detached from any live game objects.
+ * Produced when events are decoded from their binary form; its JSON representation is the same as
+ * that of the event it was made from.
+ */
+public final class EventRecord {
+
+	private final String type;
+	private final int id;
+	private final long time;
+	private final Map<String,String> properties;
+
+	public EventRecord(String type, int id, long time, Map<String,String> properties) {
+		this.type = type;
+		this.id = id;
+		this.time = time;
+		this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+	}
+
+	/** captures the information carried by event */
+	public static EventRecord of(Event event) {
+		return new EventRecord(event.getClass().getSimpleName(), event.getId(), event.getEventTime(),
+				event.getProperties());
+	}
+
+	/** simple name of the class of the recorded event */
+	public String getType() { return type; }
+
+	public int getId() { return id; }
+
+	/** time elapsed since start of game when the recorded event occurred */
+	public long getEventTime() { return time; }
+
+	public Map<String,String> getProperties() { return properties; }
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof EventRecord))
+			return false;
+		var other = (EventRecord)o;
+		return id == other.id && time == other.time && type.equals(other.type)
+				&& properties.equals(other.properties);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(type, id, time, properties);
+	}
+
+	/** returns a JSON representation of the recorded event, identical to the event's own */
+	@Override
+	public String toString() {
+		return JsonSerialization.toJson(this);
+	}
+}
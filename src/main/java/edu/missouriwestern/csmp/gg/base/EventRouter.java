@@ -0,0 +1,81 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/** keeps track of which listeners are subscribed to which classes of events.
+ * The listeners interested in a concrete event class are computed the first time an event of that
+ * class is routed, and the whole routing table is discarded whenever subscriptions change.
+ */
+final class EventRouter {
+
+	private final Map<EventListener, Set<Class<? extends Event>>> subscriptions = new ConcurrentHashMap<>();
+	private volatile Map<Class<?>, List<EventListener>> routes = new ConcurrentHashMap<>();
+
+	/** subscribes listener to the classes named in its {@link ListensFor} annotation, or to all events */
+	void subscribe(EventListener listener) {
+		var filter = listener.getClass().getAnnotation(ListensFor.class);
+		if(filter == null) {
+			subscribe(listener, Event.class);
+		} else for(var eventClass : filter.value()) {
+			subscribe(listener, eventClass);
+		}
+	}
+
+	synchronized void subscribe(EventListener listener, Class<? extends Event> eventClass) {
+		subscriptions.computeIfAbsent(listener, l -> ConcurrentHashMap.newKeySet()).add(eventClass);
+		routes = new ConcurrentHashMap<>();
+	}
+
+	synchronized void unsubscribe(EventListener listener) {
+		if(subscriptions.remove(listener) != null)
+			routes = new ConcurrentHashMap<>();
+	}
+
+	synchronized void unsubscribe(EventListener listener, Class<? extends Event> eventClass) {
+		var classes = subscriptions.get(listener);
+		if(classes != null && classes.remove(eventClass)) {
+			if(classes.isEmpty())
+				subscriptions.remove(listener);
+			routes = new ConcurrentHashMap<>();
+		}
+	}
+
+	boolean isSubscribed(EventListener listener) {
+		return subscriptions.containsKey(listener);
+	}
+
+	/** returns every subscribed listener, regardless of what it is subscribed to */
+	Stream<EventListener> getListeners() {
+		return subscriptions.keySet().stream();
+	}
+
+	/** returns the listeners subscribed to eventClass or any of its superclasses */
+	List<EventListener> route(Class<? extends Event> eventClass) {
+		var table = routes;
+		var route = table.get(eventClass);
+		if(route == null) {
+			route = computeRoute(eventClass);
+			// if subscriptions changed meanwhile, this lands in a table that has already been discarded
+			table.putIfAbsent(eventClass, route);
+		}
+		return route;
+	}
+
+	private List<EventListener> computeRoute(Class<? extends Event> eventClass) {
+		var route = new ArrayList<EventListener>();
+		subscriptions.forEach((listener, classes) -> {
+			for(var subscribed : classes) {
+				if(subscribed.isAssignableFrom(eventClass)) {
+					route.add(listener);
+					break;
+				}
+			}
+		});
+		return List.copyOf(route);
+	}
+}
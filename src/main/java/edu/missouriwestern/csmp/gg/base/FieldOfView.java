@@ -0,0 +1,275 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.TileStateUpdateEvent;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/** works out which tiles of a {@link Board} can be seen from where, for fog of war.
+ * Which tiles block sight is decided by an opacity predicate, evaluated once per tile and kept in a
+ * bitmap; a tile is re-evaluated whenever a {@link TileStateUpdateEvent} reports that it changed.
+ * Cells without tiles and cells off the board block sight.
+ * <p>
+ * Entities registered with {@link #addViewer(Entity, int)} have their visible tiles cached. A viewer's
+ * tiles are recomputed, by recursive shadowcasting, the next time they are asked for after the viewer
+ * has moved to another tile or a tile within its sight radius has changed opacity; other viewers keep
+ * their cached tiles. Each viewer reuses its own bitmap, so recomputing allocates nothing.
+ * <p>
+ * Use {@link Board#getFieldOfView()} to get the field of view service for a board.
+ */
+public class FieldOfView implements EventListener {
+
+	/** tiles block sight if their "opaque" property is "true" */
+	public static final Predicate<Tile> DEFAULT_OPACITY = tile -> "true".equals(tile.getProperties().get("opaque"));
+
+	// transforms from the first octant to each of the eight, as {xx, xy, yx, yy}
+	private static final int[][] OCTANTS = {
+			{1, 0, 0, 1}, {0, 1, 1, 0}, {0, -1, 1, 0}, {-1, 0, 0, 1},
+			{-1, 0, 0, -1}, {0, -1, -1, 0}, {0, 1, -1, 0}, {1, 0, 0, -1}};
+
+	private final Board board;
+	private final int width;
+	private final int height;
+	private final long[] opaque;  // bit per cell, row-major
+	private volatile Predicate<Tile> opacity;
+	private final Map<Entity,Viewer> viewers = new ConcurrentHashMap<>();
+
+	FieldOfView(Board board, Predicate<Tile> opacity) {
+		this.board = board;
+		this.width = board.getWidth();
+		this.height = board.getHeight();
+		this.opaque = new long[(width * height + 63) >>> 6];
+		setOpacity(opacity);
+	}
+
+	/** replaces the rule deciding which tiles block sight, re-evaluating every tile */
+	public synchronized void setOpacity(Predicate<Tile> opacity) {
+		this.opacity = opacity;
+		for(int row = 0; row < height; row++)
+			for(int column = 0; column < width; column++)
+				update(column, row);
+		viewers.values().forEach(Viewer::invalidate);
+	}
+
+	/** re-evaluates a tile when its properties change, invalidating the viewers that could see it */
+	@Override
+	public void accept(Event event) {
+		if(!(event instanceof TileStateUpdateEvent))
+			return;
+		var update = (TileStateUpdateEvent)event;
+		if(update.getBoard() != board)
+			return;
+		boolean changed;
+		synchronized(this) {
+			changed = update(update.getColumn(), update.getRow());
+		}
+		if(changed)
+			for(var viewer : viewers.values())
+				if(viewer.covers(update.getColumn(), update.getRow()))
+					viewer.invalidate();
+	}
+
+	private boolean update(int column, int row) {
+		var tile = board.getTile(column, row);
+		int cell = row * width + column;
+		boolean was = (opaque[cell >>> 6] & (1L << cell)) != 0;
+		boolean is = tile == null || opacity.test(tile);
+		if(is)
+			opaque[cell >>> 6] |= 1L << cell;
+		else opaque[cell >>> 6] &= ~(1L << cell);
+		return was != is;
+	}
+
+	/** returns whether the cell at column and row blocks sight */
+	public boolean isOpaque(int column, int row) {
+		if(column < 0 || row < 0 || column >= width || row >= height)
+			return true;
+		int cell = row * width + column;
+		return (opaque[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/** returns whether the line between the centres of two tiles passes only through transparent tiles.
+	 * The tiles at either end may be opaque, so a wall can be seen but not seen through. */
+	public boolean hasLineOfSight(Tile from, Tile to) {
+		if(from.getBoard() != board || to.getBoard() != board)
+			return false;
+		if(from.getColumn() == to.getColumn() && from.getRow() == to.getRow())
+			return true;
+		int x = from.getColumn(), y = from.getRow();
+		int x1 = to.getColumn(), y1 = to.getRow();
+		int dx = Math.abs(x1 - x), dy = -Math.abs(y1 - y);
+		int sx = x < x1 ? 1 : -1, sy = y < y1 ? 1 : -1;
+		int error = dx + dy;
+		while(true) {  // Bresenham's line
+			int e2 = 2 * error;
+			if(e2 >= dy) {
+				error += dy;
+				x += sx;
+			}
+			if(e2 <= dx) {
+				error += dx;
+				y += sy;
+			}
+			if(x == x1 && y == y1)
+				return true;
+			if(isOpaque(x, y))
+				return false;
+		}
+	}
+
+	/** starts caching the tiles visible to entity within radius tiles of it */
+	public void addViewer(Entity entity, int radius) {
+		viewers.put(entity, new Viewer(entity, radius));
+	}
+
+	public void removeViewer(Entity entity) {
+		viewers.remove(entity);
+	}
+
+	/** returns the tiles visible to a viewer, recomputing them first if they may have changed.
+	 * The result is updated in place by later calls, so it should not be kept.
+	 * @throws IllegalArgumentException if entity is not a viewer
+	 */
+	public Visible getVisible(Entity entity) {
+		var viewer = viewers.get(entity);
+		if(viewer == null)
+			throw new IllegalArgumentException("entity " + entity.getID() + " is not a viewer");
+		viewer.refresh();
+		return viewer;
+	}
+
+	/** the tiles a viewer can see */
+	public interface Visible {
+		/** whether the viewer can see tile */
+		boolean isVisible(Tile tile);
+
+		/** applies action to every tile the viewer can see */
+		void forEachVisible(Consumer<Tile> action);
+
+		/** number of tiles the viewer can see */
+		int count();
+	}
+
+	/** cached visibility for one entity, stored as a bitmap of the square within its radius */
+	private final class Viewer implements Visible {
+		final Entity entity;
+		final int radius;
+		final int span;
+		final long[] bits;
+		volatile boolean hasOrigin;  // false while the viewer is not on this board; written after the origin
+		int originColumn, originRow;  // board cell at the centre of bits
+		volatile boolean valid;
+
+		Viewer(Entity entity, int radius) {
+			this.entity = entity;
+			this.radius = radius;
+			this.span = 2 * radius + 1;
+			this.bits = new long[(span * span + 63) >>> 6];
+		}
+
+		void invalidate() {
+			valid = false;
+		}
+
+		boolean covers(int column, int row) {
+			return hasOrigin && Math.abs(column - originColumn) <= radius && Math.abs(row - originRow) <= radius;
+		}
+
+		synchronized void refresh() {
+			var location = board.getGame().getTopLevelEntityLocation(entity);
+			var tile = location instanceof Tile && ((Tile)location).getBoard() == board ? (Tile)location : null;
+			if(valid && (tile == null ? !hasOrigin
+					: hasOrigin && tile.getColumn() == originColumn && tile.getRow() == originRow))
+				return;
+			valid = true;  // cleared again by any change made while computing
+			Arrays.fill(bits, 0);
+			hasOrigin = false;
+			if(tile == null)
+				return;  // not on this board, so sees nothing here
+			originColumn = tile.getColumn();
+			originRow = tile.getRow();
+			hasOrigin = true;
+			mark(originColumn, originRow);
+			for(var octant : OCTANTS)
+				castLight(1, 1.0, 0.0, octant[0], octant[1], octant[2], octant[3]);
+		}
+
+		/** recursive shadowcasting over one octant, scanning rows outwards from the viewer */
+		private void castLight(int distance, double start, double end, int xx, int xy, int yx, int yy) {
+			if(start < end)
+				return;
+			int radiusSquared = radius * radius;
+			double newStart = 0;
+			for(int j = distance; j <= radius; j++) {
+				boolean blocked = false;
+				for(int dx = -j, dy = -j; dx <= 0; dx++) {
+					int column = originColumn + dx * xx + dy * xy;
+					int row = originRow + dx * yx + dy * yy;
+					double leftSlope = (dx - 0.5) / (dy + 0.5);
+					double rightSlope = (dx + 0.5) / (dy - 0.5);
+					if(start < rightSlope)
+						continue;
+					if(end > leftSlope)
+						break;
+					if(dx * dx + dy * dy <= radiusSquared)
+						mark(column, row);
+					boolean wall = isOpaque(column, row);
+					if(blocked) {
+						if(wall) {
+							newStart = rightSlope;
+						} else {
+							blocked = false;
+							start = newStart;
+						}
+					} else if(wall && j < radius) {
+						blocked = true;
+						castLight(j + 1, start, leftSlope, xx, xy, yx, yy);
+						newStart = rightSlope;
+					}
+				}
+				if(blocked)
+					break;
+			}
+		}
+
+		private void mark(int column, int row) {
+			if(column < 0 || row < 0 || column >= width || row >= height)
+				return;
+			int bit = (row - originRow + radius) * span + (column - originColumn + radius);
+			bits[bit >>> 6] |= 1L << bit;
+		}
+
+		@Override
+		public boolean isVisible(Tile tile) {
+			if(tile.getBoard() != board || !covers(tile.getColumn(), tile.getRow()))
+				return false;
+			int bit = (tile.getRow() - originRow + radius) * span + (tile.getColumn() - originColumn + radius);
+			return (bits[bit >>> 6] & (1L << bit)) != 0;
+		}
+
+		@Override
+		public void forEachVisible(Consumer<Tile> action) {
+			if(!hasOrigin)
+				return;
+			for(int word = 0; word < bits.length; word++) {
+				for(long w = bits[word]; w != 0; w &= w - 1) {
+					int bit = (word << 6) + Long.numberOfTrailingZeros(w);
+					var tile = board.getTile(originColumn - radius + bit % span, originRow - radius + bit / span);
+					if(tile != null)
+						action.accept(tile);
+				}
+			}
+		}
+
+		@Override
+		public int count() {
+			int count = 0;
+			for(var word : bits)
+				count += Long.bitCount(word);
+			return count;
+		}
+	}
+}
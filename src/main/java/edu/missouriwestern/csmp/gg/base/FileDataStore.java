@@ -0,0 +1,169 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/** {@link DataStore} keeping entities and players in a single JSON file.
+ * The whole file is read when the store is opened and rewritten after every save or saveAll, so it is meant for
+ * tests and small games, or to sit behind a {@link WriteBehindDataStore} that saves in batches.
+ * Entities are stored by their integer IDs and players by their string IDs.
+ */
+public class FileDataStore implements DataStore {
+	private static final Gson GSON = new Gson();
+
+	private final Path file;
+	private final TreeMap<Integer, Map<String,String>> entities = new TreeMap<>();
+	private final TreeMap<String, Map<String,String>> players = new TreeMap<>();
+
+	private static class Contents {
+		Map<Integer, Map<String,String>> entities;
+		Map<String, Map<String,String>> players;
+	}
+
+	/** opens the store in file, which is created on the first save if it does not exist */
+	public FileDataStore(Path file) throws IOException {
+		this.file = file;
+		if(Files.exists(file)) {
+			try(var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				Contents contents = GSON.fromJson(in, new TypeToken<Contents>(){}.getType());
+				if(contents != null && contents.entities != null)
+					entities.putAll(contents.entities);
+				if(contents != null && contents.players != null)
+					players.putAll(contents.players);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void save(HasProperties object) {
+		store(object);
+		write();
+	}
+
+	@Override
+	public synchronized void load(HasProperties object) {
+		var stored = stored(object);
+		if(stored != null)
+			stored.forEach(object::setProperty);
+	}
+
+	/** returns the IDs of entities whose stored properties include every entry in map other than "id" */
+	@Override
+	@SuppressWarnings("rawtypes")  // the raw Map comes from DataStore.search
+	public synchronized ArrayList<Integer> search(Map map) {
+		var ids = new ArrayList<Integer>();
+		for(var entry : entities.entrySet())
+			if(matches(entry.getValue(), map))
+				ids.add(entry.getKey());
+		return ids;
+	}
+
+	/** records every object, then rewrites the file once */
+	@Override
+	public synchronized void saveAll(Collection<? extends HasProperties> objects) {
+		for(var object : objects)
+			store(object);
+		write();
+	}
+
+	@Override
+	public synchronized void saveChanges(HasProperties object, Map<String,String> changes) {
+		merge(object, changes);
+		write();
+	}
+
+	/** merges every object's changes, then rewrites the file once */
+	@Override
+	public synchronized void saveAllChanges(Map<? extends HasProperties, Map<String,String>> changes) {
+		changes.forEach(this::merge);
+		write();
+	}
+
+	/** answers every query in a single pass over the stored entities */
+	@Override
+	public synchronized List<ArrayList<Integer>> searchAll(List<? extends Map<String,String>> queries) {
+		var results = new ArrayList<ArrayList<Integer>>(queries.size());
+		for(int i = 0; i < queries.size(); i++)
+			results.add(new ArrayList<>());
+		for(var entry : entities.entrySet())
+			for(int i = 0; i < queries.size(); i++)
+				if(matches(entry.getValue(), queries.get(i)))
+					results.get(i).add(entry.getKey());
+		return results;
+	}
+
+	@Override
+	public synchronized Map<Integer,Map<String,String>> loadAll(Collection<Integer> entityIds) {
+		var loaded = new HashMap<Integer,Map<String,String>>();
+		for(var id : entityIds)
+			loaded.put(id, new HashMap<>(entities.getOrDefault(id, Map.of())));
+		return loaded;
+	}
+
+	@Override
+	public synchronized int getMaxEntityId() {
+		return entities.isEmpty() ? -1 : entities.lastKey();
+	}
+
+	/** records the properties of object without writing the file */
+	private void store(HasProperties object) {
+		var properties = new HashMap<>(object.getProperties());
+		var id = properties.remove("id");
+		if(id == null)
+			throw new IllegalArgumentException("cannot store an object without an id: " + object);
+		if(object instanceof Player)
+			players.put(id, properties);
+		else entities.put(Integer.parseInt(id), properties);
+	}
+
+	/** updates the stored properties of object with changes, without writing the file */
+	private void merge(HasProperties object, Map<String,String> changes) {
+		if(object instanceof Player)
+			players.computeIfAbsent(((Player)object).getID(), id -> new HashMap<>()).putAll(changes);
+		else {
+			var id = object instanceof Entity ? ((Entity)object).getID()
+					: Integer.parseInt(object.getProperties().get("id"));
+			entities.computeIfAbsent(id, i -> new HashMap<>()).putAll(changes);
+		}
+	}
+
+	private Map<String,String> stored(HasProperties object) {
+		if(object instanceof Player)
+			return players.get(((Player)object).getID());
+		if(object instanceof Entity)
+			return entities.get(((Entity)object).getID());
+		var id = object.getProperties().get("id");
+		return id == null ? null : entities.get(Integer.parseInt(id));
+	}
+
+	private static boolean matches(Map<String,String> properties, Map<?,?> query) {
+		for(var entry : query.entrySet())
+			if(!"id".equals(entry.getKey()) && !Objects.equals(properties.get(entry.getKey()), entry.getValue()))
+				return false;
+		return true;
+	}
+
+	/** writes the whole store to a temporary file and moves it over the old one */
+	private void write() {
+		var contents = new Contents();
+		contents.entities = entities;
+		contents.players = players;
+		var temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try(var out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				GSON.toJson(contents, out);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			throw new UncheckedIOException("could not write data store " + file, e);
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package edu.missouriwestern.csmp.gg.base;
 
 import com.google.common.collect.*;
-import com.google.gson.GsonBuilder;
 import edu.missouriwestern.csmp.gg.base.events.EntityCreationEvent;
 import edu.missouriwestern.csmp.gg.base.events.EntityDeletionEvent;
 import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
@@ -10,6 +9,12 @@ import javax.xml.crypto.Data;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /** Class for managing the state of games using the 2D API
@@ -17,44 +22,56 @@ import java.util.stream.Stream;
 public abstract class Game implements Container, EventProducer {
 
 	private final Map<String,Board> boards = new ConcurrentHashMap<>();
-	private final long startTime;    // time when game was started or restarted
-	private final long elapsedTime;  // time elapsed in game since start or last restart
+	private volatile long startTime;    // time when game was started or restarted
+	private volatile long elapsedTime;  // time elapsed in game since start or last restart
 	private final AtomicInteger nextEntityID;
+	private final int firstNewEntityID;  // IDs below this were loaded from the data store
 	private final AtomicInteger nextEventID = new AtomicInteger(1);
-	private final Map<EventListener,Object> listeners = new ConcurrentHashMap<>();
+	private final EventRouter router = new EventRouter();
+	private final InterestManager interests = new InterestManager(this, 16);
 	private final DataStore dataStore;
+	private volatile EventDispatcher dispatcher = new SynchronousEventDispatcher();
+	private volatile LongSupplier timeSource = System::currentTimeMillis;
+	private final TickScheduler tickScheduler = new TickScheduler(this);
 
-	// no concurrent set, so only keys used to mimic set
-	final BiMap<Integer, Entity> registeredEntities;
+	final EntityRegistry registeredEntities = new EntityRegistry();
 	private final BiMap<String, Player> allPlayers;
-
-	// access must be protected by monitor
-	private final Multimap<Container, Entity> containerContents;
-	private final Map<Entity, Container> entityLocations;
+	private final ContainmentIndex containment = new ContainmentIndex();
+	private final Object nesting = new Object();  // held while moving entities into other entities
+	// an entity's stripe is read locked while it is added, removed or moved, and every stripe is write
+	// locked, in order, for the whole of a batch; events for the changes are numbered under the read lock,
+	// so a batch sees every lower-numbered change
+	private static final int MUTATION_STRIPES = 64;  // must be a power of two
+	private final ReadWriteLock[] mutation = new ReadWriteLock[MUTATION_STRIPES];
+	{
+		for(int i = 0; i < MUTATION_STRIPES; i++)
+			mutation[i] = new ReentrantReadWriteLock();
+	}
+	private final ThreadLocal<EventBatch> openBatch = new ThreadLocal<>();
+	private final ThreadLocal<Integer> restoringEntityId = new ThreadLocal<>();
+	private static final int PREFETCH_CHUNK = 256;  // entities loaded per request by prefetchPermanentEntities
+	private final Set<HasProperties> dirtyObjects = ConcurrentHashMap.newKeySet();  // have unsaved changes
+	// results of prefetchPermanentEntities, used up as the entities are constructed
+	private final Map<Map<String,String>,Integer> prefetchedIds = new ConcurrentHashMap<>();
+	private final Map<Integer,Map<String,String>> prefetchedProperties = new ConcurrentHashMap<>();
 
 	public Game() {
 		this.dataStore = null; // data store won't be used with this game
 		this.startTime = System.currentTimeMillis();
 		this.elapsedTime = 0;
-		registeredEntities = Maps.synchronizedBiMap(HashBiMap.create());
 		allPlayers = Maps.synchronizedBiMap(HashBiMap.create());
-		// access must be protected by monitor
-		containerContents = HashMultimap.create();
-		entityLocations = new HashMap<>();
-		this.nextEntityID = new AtomicInteger(0);
+		this.firstNewEntityID = 0;
+		this.nextEntityID = new AtomicInteger(firstNewEntityID);
 	}
 
 	public Game(DataStore dataStore) {
 		this.dataStore = dataStore;
 		this.startTime = System.currentTimeMillis();
 		this.elapsedTime = 0;
-		registeredEntities = Maps.synchronizedBiMap(HashBiMap.create());
 		allPlayers = Maps.synchronizedBiMap(HashBiMap.create());
-		// access must be protected by monitor
-		containerContents = HashMultimap.create();
-		entityLocations = new HashMap<>();
 		  // set next entity ID to be one more than the biggest one in the database
-		this.nextEntityID = new AtomicInteger(dataStore.getMaxEntityId() + 1);
+		this.firstNewEntityID = dataStore.getMaxEntityId() + 1;
+		this.nextEntityID = new AtomicInteger(firstNewEntityID);
 	}
 
 	@Override
@@ -67,32 +84,164 @@ public abstract class Game implements Container, EventProducer {
 
 	/** returns the number of milliseconds elapsed since the start of the game */
 	public long getGameTime() {
-		return System.currentTimeMillis() - startTime + elapsedTime;
+		return timeSource.getAsLong() - startTime + elapsedTime;
+	}
+
+	/** replaces the clock game time is measured by, which is the system clock by default.
+	 * Game time carries on from its current value. Used with {@link TickScheduler#getTickTime()} to run
+	 * a game deterministically.
+	 * @param timeSource supplies the current time in milliseconds
+	 */
+	public synchronized void setTimeSource(LongSupplier timeSource) {
+		long now = getGameTime();
+		this.timeSource = timeSource;
+		this.startTime = timeSource.getAsLong();
+		this.elapsedTime = now;
+	}
+
+	/** returns the scheduler that runs this game's ticks */
+	public TickScheduler getTickScheduler() {
+		return tickScheduler;
 	}
 
 	public DataStore getDataStore(){
 		return (DataStore) dataStore;
 	}
 
-	/** begins forwarding all game events to specified listener */
+	/** returns the dispatcher currently used to deliver events to listeners */
+	public EventDispatcher getEventDispatcher() {
+		return dispatcher;
+	}
+
+	/** replaces the dispatcher used to deliver events to listeners.
+	 * The previous dispatcher is not shut down; events it has already queued will still be delivered.
+	 * @param dispatcher dispatcher to be used for all subsequent events
+	 */
+	public void setEventDispatcher(EventDispatcher dispatcher) {
+		assert dispatcher != null;
+		this.dispatcher = dispatcher;
+	}
+
+	/** begins forwarding game events to specified listener.
+	 * If the listener's class is annotated with {@link ListensFor}, only events of the listed classes
+	 * are forwarded; otherwise every event is.
+	 */
 	@Override
 	public void registerListener(EventListener listener) {
-		listeners.put(listener, "thing");
+		dispatcher.register(listener);
+		router.subscribe(listener);
+	}
+
+	/** begins forwarding events of the specified class (including its subclasses) to listener.
+	 * May be called several times to subscribe a listener to several classes of events.
+	 */
+	public void registerListener(Class<? extends Event> eventClass, EventListener listener) {
+		dispatcher.register(listener);
+		router.subscribe(listener, eventClass);
 	}
 
 	/** stops forwarding all game events to specified listener */
 	@Override
 	public void deregisterListener(EventListener listener) {
-		listeners.put(listener, "thing");
+		router.unsubscribe(listener);
+		dispatcher.release(listener);
+	}
+
+	/** stops forwarding events of the specified class to listener.
+	 * Only undoes a subscription made to exactly that class.
+	 */
+	public void deregisterListener(Class<? extends Event> eventClass, EventListener listener) {
+		router.unsubscribe(listener, eventClass);
+		if(!router.isSubscribed(listener))
+			dispatcher.release(listener);
 	}
 
 	/** returns currently registered event listeners
-	 * All listeners registered via registerListener
+	 * All listeners registered via registerListener, whatever they are subscribed to
 	 * @return
 	 */
 	@Override
 	public Stream<EventListener> getListeners() {
-		return listeners.keySet().stream();
+		return router.getListeners();
+	}
+
+	/** returns the listeners that will be sent events of the specified class */
+	public Stream<EventListener> getListeners(Class<? extends Event> eventClass) {
+		return router.route(eventClass).stream();
+	}
+
+	/** hands event to the current {@link EventDispatcher} for delivery to the listeners subscribed to it.
+	 * Players managed by the {@link InterestManager} are skipped if the event happened far from them.
+	 */
+	@Override
+	public void propagateEvent(Event event) {
+		if(event instanceof EntityMovedEvent)
+			interests.entityMoved(((EntityMovedEvent)event).getEntity());
+		dispatcher.dispatch(event, interests.filterRoute(event, router.route(event.getClass())));
+	}
+
+	/** sends event to listeners, unless a batch is running on this thread, in which case the event is
+	 * held back until the batch finishes */
+	@Override
+	public void accept(Event event) {
+		var batch = openBatch.get();
+		if(batch != null)
+			batch.add(event);
+		else propagateEvent(event);
+	}
+
+	/** runs a series of changes to the game, such as spawning a level or resolving a turn, publishing
+	 * their events together once all of them have been made.
+	 * Events issued to this game on this thread while mutations runs are coalesced, so that each entity
+	 * produces at most one move event (see {@link EventBatch}). Batches started inside a batch join it.
+	 * <p>
+	 * Entities cannot be added, removed or moved by other threads while a batch runs, so its changes are
+	 * not interleaved with theirs; those threads wait until the batch is over. Outside of batches, threads
+	 * changing different entities only share a lock stripe by chance. Other threads may still read
+	 * the game part way through a batch, and property changes are not held back. The events are published
+	 * after the batch lets other threads continue.
+	 * @param mutations changes to be applied
+	 */
+	public void batch(Runnable mutations) {
+		runBatch(mutations, true);
+	}
+
+	/** runs changes with their events held back and coalesced as in a {@link #batch(Runnable) batch}, but
+	 * without keeping other threads from changing the game meanwhile; used for ticks, which may run long */
+	void coalesceEvents(Runnable mutations) {
+		runBatch(mutations, false);
+	}
+
+	private void runBatch(Runnable mutations, boolean exclusive) {
+		var outer = openBatch.get();
+		var batch = outer != null ? outer : new EventBatch();
+		if(exclusive)
+			for(var stripe : mutation)
+				stripe.writeLock().lock();
+		if(outer == null)
+			openBatch.set(batch);
+		try {
+			mutations.run();
+		} finally {
+			if(outer == null)
+				openBatch.remove();
+			if(exclusive)
+				for(int i = MUTATION_STRIPES - 1; i >= 0; i--)
+					mutation[i].writeLock().unlock();
+			if(outer == null)
+				for(var event : batch.coalesce())
+					propagateEvent(event);
+		}
+	}
+
+	/** lock held while ent is added, removed or moved, keeping batches on other threads out */
+	private Lock mutating(Entity ent) {
+		return mutation[ent.getID() & (MUTATION_STRIPES - 1)].readLock();
+	}
+
+	/** returns the manager used to limit the events players receive to those near their entities */
+	public InterestManager getInterestManager() {
+		return interests;
 	}
 
 	/** add a player to the game
@@ -100,7 +249,10 @@ public abstract class Game implements Container, EventProducer {
 	 */
 	public void addPlayer(Player player) {
 		allPlayers.put(player.getID(), player);
-		getDataStore().load(player);
+		if(dataStore != null) {
+			dataStore.load(player);
+			player.clearChanges();  // what was just loaded is already stored
+		}
 	}
 
 	/** remove player from the game
@@ -109,9 +261,12 @@ public abstract class Game implements Container, EventProducer {
 	 */
 	public void removePlayer(Player player) {
 		allPlayers.remove(player.getID());
+		interests.release(player);
 	}
 	public void removePlayer(String playerId) {
-		allPlayers.remove(playerId);
+		var player = allPlayers.remove(playerId);
+		if(player != null)
+			interests.release(player);
 	}
 
 	/** find player with associated ID that has joined this game
@@ -128,7 +283,7 @@ public abstract class Game implements Container, EventProducer {
 	 * @return Stream of associated Entities
 	 */
 	public Stream<Entity> getEntities() {
-		return registeredEntities.values().stream();
+		return registeredEntities.stream();
 	}
 
 	/**
@@ -147,10 +302,140 @@ public abstract class Game implements Container, EventProducer {
 	 * @return the id of the supplied entity
 	 */
 	public int getEntityId(Entity ent) {
-		return registeredEntities.entrySet().stream()
-				.filter(e -> e.getValue() == ent)
-				.mapToInt(e -> e.getKey())
-				.findFirst().getAsInt();
+		if(!registeredEntities.contains(ent))
+			throw new NoSuchElementException("entity " + ent.getID() + " of type " +
+					ent.getClass().getSimpleName() + " is not registered with this game");
+		return ent.getID();
+	}
+
+	/** chooses the ID for a newly constructed entity.
+	 * A {@link Permanent} entity that matches exactly one entity in the data store is given that entity's ID;
+	 * any other entity is given the next unused ID.
+	 * @param ent entity being constructed
+	 * @param properties the entity's initial properties, used to search the data store
+	 */
+	int allocateEntityId(Entity ent, Map<String,String> properties) {
+		var restoring = restoringEntityId.get();
+		if(restoring != null) {  // entity is being rebuilt from a snapshot with its original ID
+			restoringEntityId.remove();
+			nextEntityID.accumulateAndGet(restoring + 1, Math::max);
+			return restoring;
+		}
+		if(dataStore != null && ent.getClass().isAnnotationPresent(Permanent.class)) {
+			// this entity should be loaded from the database if possible
+			var prefetched = prefetchedIds.isEmpty() ? null : prefetchedIds.remove(properties);
+			if(prefetched != null)
+				return prefetched;
+			var ids = dataStore.search(properties);
+			if(ids.size() == 1)  // found a unique entity in the db
+				return ids.get(0);
+		}
+		return nextEntityID.getAndIncrement();
+	}
+
+	/** records that object has property changes that have not been persisted */
+	void markDirty(HasProperties object) {
+		if(dataStore != null)
+			dirtyObjects.add(object);
+	}
+
+	/** collects the unsaved property changes of every entity and player, forgetting them.
+	 * Each object is mapped to the current values of its changed properties. */
+	Map<HasProperties,Map<String,String>> takeChanges() {
+		var changes = new HashMap<HasProperties,Map<String,String>>();
+		for(var object : dirtyObjects) {
+			if(!dirtyObjects.remove(object))
+				continue;
+			var changed = object instanceof Entity ? ((Entity)object).takeChanges()
+					: ((Player)object).takeChanges();
+			if(!changed.isEmpty())
+				changes.put(object, changed);
+		}
+		return changes;
+	}
+
+	/** marks changes taken by {@link #takeChanges()} as unsaved again, after they could not be saved */
+	void restoreChanges(Map<HasProperties,Map<String,String>> changes) {
+		changes.forEach((object, changed) -> {
+			if(object instanceof Entity)
+				((Entity)object).markChanged(changed.keySet());
+			else ((Player)object).markChanged(changed.keySet());
+		});
+	}
+
+	/** looks up the {@link Permanent} entities about to be constructed in the data store ahead of time.
+	 * Their IDs are found with one {@link DataStore#searchAll(List)} and their properties are loaded
+	 * with {@link DataStore#loadAll(Collection)} in chunks of {@value #PREFETCH_CHUNK} run in parallel,
+	 * so the data store must be thread-safe. Entities later constructed with exactly these initial
+	 * properties then take their ID and stored properties from the results instead of querying the
+	 * data store one at a time.
+	 * @param initialProperties the initial properties of each entity to be constructed
+	 * @return the number of entities found in the data store
+	 */
+	public int prefetchPermanentEntities(Collection<? extends Map<String,String>> initialProperties) {
+		if(dataStore == null || initialProperties.isEmpty())
+			return 0;
+		var queries = new ArrayList<Map<String,String>>(initialProperties);
+		var results = dataStore.searchAll(queries);
+		var ids = new ArrayList<Integer>();
+		for(int i = 0; i < queries.size(); i++) {
+			if(results.get(i).size() == 1) {  // only unique matches are loaded, as in allocateEntityId
+				prefetchedIds.put(Map.copyOf(queries.get(i)), results.get(i).get(0));
+				ids.add(results.get(i).get(0));
+			}
+		}
+		Lists.partition(ids, PREFETCH_CHUNK).parallelStream()
+				.forEach(chunk -> prefetchedProperties.putAll(dataStore.loadAll(chunk)));
+		return ids.size();
+	}
+
+	/** constructs an entity that will be registered under the specified ID instead of a new one.
+	 * Only the first entity constructed by constructor on this thread receives the ID.
+	 */
+	<T extends Entity> T restoreEntity(int id, Supplier<T> constructor) {
+		restoringEntityId.set(id);
+		try {
+			return constructor.get();
+		} finally {
+			restoringEntityId.remove();
+		}
+	}
+
+	/** resumes the game clock and ID counters from values saved by a {@link GameSnapshot}.
+	 * Counters are only ever moved forward.
+	 */
+	void restoreCounters(long gameTime, int nextEntityId, int nextEventId) {
+		this.startTime = timeSource.getAsLong();
+		this.elapsedTime = gameTime;
+		nextEntityID.accumulateAndGet(nextEntityId, Math::max);
+		nextEventID.accumulateAndGet(nextEventId, Math::max);
+	}
+
+	/** makes sure events are given IDs of at least nextEventId from now on */
+	void advanceEventIds(int nextEventId) {
+		nextEventID.accumulateAndGet(nextEventId, Math::max);
+	}
+
+	/** returns the ID the next entity will receive, without using it */
+	int peekNextEntityId() {
+		return nextEntityID.get();
+	}
+
+	/** returns the ID the next event will receive, without using it */
+	int peekNextEventId() {
+		return nextEventID.get();
+	}
+
+	/** copies the players currently in the game */
+	List<Player> copyPlayers() {
+		synchronized(allPlayers) {  // synchronized bimap views must be iterated under its lock
+			return new ArrayList<>(allPlayers.values());
+		}
+	}
+
+	/** boards added to this game, keyed by the IDs they were added under */
+	Map<String,Board> getBoardsById() {
+		return Collections.unmodifiableMap(boards);
 	}
 
 	/** determine the number of players currently in the game
@@ -187,29 +472,30 @@ public abstract class Game implements Container, EventProducer {
 	 */
 	public void addEntity(Entity ent) {
 		assert ent != null;
-		var id = -1; // temporary id, -1 means entity was not found in db
-		if(dataStore != null && ent.getClass().isAnnotationPresent(Permanent.class)) {
-			// this entity should be loaded from the database if possible
-			var ids = dataStore.search(ent.getProperties());
-			if(ids.size() == 1) {  // found a unique entity in the db
-				id = ids.get(0);   // assign its id
-				ent.setProperty("id", ""+id);  // set the id as a property to look up other properties
-				dataStore.load(ent);  // load other properties from the database
-			}
+		var id = ent.getID();
+		if(dataStore != null && id < firstNewEntityID && ent.getClass().isAnnotationPresent(Permanent.class)) {
+			// id came from the database, so load other properties from it too
+			var prefetched = prefetchedProperties.isEmpty() ? null : prefetchedProperties.remove(id);
+			if(prefetched != null)
+				prefetched.forEach(ent::setProperty);
+			else dataStore.load(ent);
+			ent.clearChanges();  // what was just loaded is already stored
+		} else if(dataStore != null && ent.getClass().isAnnotationPresent(Permanent.class)) {
+			ent.markChanged(ent.getOwnProperties().keySet());  // new to the data store, so store all of it
 		}
-		if(id == -1) {
-			// could not load id from database
-			id = nextEntityID.getAndIncrement();
-		}
-		registeredEntities.put(id, ent);
-		synchronized (this) { // add entity to the game's contents as default
-			entityLocations.put(ent, this);
-			containerContents.put(this, ent);
+		Event created;
+		mutating(ent).lock();
+		try {
+			registeredEntities.put(id, ent);
+			containment.move(ent, this); // add entity to the game's contents as default
+			created = new EntityCreationEvent(this, ent);  // numbered in step with the change
+		} finally {
+			mutating(ent).unlock();
 		}
 		if(ent instanceof EventListener) {
 			registerListener((EventListener)ent);
 		}
-		accept(new EntityCreationEvent(this, ent));
+		accept(created);
 	}
 
 	/**
@@ -217,86 +503,114 @@ public abstract class Game implements Container, EventProducer {
 	 * @param ent Entity to be removed
 	 */
 	public void removeEntity(Entity ent) {
-		synchronized(this) {
-			if(ent instanceof EventListener) {
-				deregisterListener((EventListener)ent);
-			}
-			moveEntity(ent, this); // generate an entity moved event
+		if(ent instanceof EventListener) {
+			deregisterListener((EventListener)ent);
+		}
+		moveEntity(ent, this); // generate an entity moved event
 
-			var currentContainer = entityLocations.get(ent);
-			entityLocations.remove(ent);
-			if(currentContainer != null) {
-				containerContents.remove(currentContainer, ent);
-			}
+		Event deleted;
+		mutating(ent).lock();
+		try {
+			containment.remove(ent);
 			// remove entity from game
-			registeredEntities.remove(ent);
+			registeredEntities.remove(ent.getID(), ent);
+			deleted = new EntityDeletionEvent(this, ent);
+		} finally {
+			mutating(ent).unlock();
 		}
 
+		interests.entityRemoved(ent);
 		// alert other game components to entity removal
-		accept(new EntityDeletionEvent(this, ent));
+		accept(deleted);
 	}
 
 	/** moves the entity to a new Container.
 	 * Container may be a Player, a Tile, or another Entity
 	 * @param ent
 	 * @param container
+	 * @throws IllegalArgumentException if container is ent or is held, directly or not, by ent
 	 */
 	public void moveEntity(Entity ent, Container container) {
 		assert ent != null;
 		assert container != null;
-		assert registeredEntities.containsKey(ent.getID());
-
-		Container prev = getGame().getEntityLocation(ent);
-
-		synchronized (this) {
-			// move entity to new location
-			var currentLocation = getEntityLocation(ent);
-			if(currentLocation != null) {
-				entityLocations.remove(ent);
-				containerContents.remove(currentLocation, ent);
-			}
-			entityLocations.put(ent, container);
-			containerContents.put(container, ent);
+		assert registeredEntities.contains(ent);
+
+		Event moved;
+		mutating(ent).lock();
+		try {
+			Container prev;
+			if(container instanceof Entity) {
+				// only moves into entities can close a loop, so they are checked and made one at a time
+				synchronized(nesting) {
+					for(Container location = container; location instanceof Entity;
+					    location = containment.locate((Entity)location))
+						if(location == ent)
+							throw new IllegalArgumentException("entity " + ent.getID() + " cannot be moved inside itself");
+					prev = containment.move(ent, container);
+				}
+			} else prev = containment.move(ent, container);
+			moved = new EntityMovedEvent(ent, prev, container);
+		} finally {
+			mutating(ent).unlock();  // before the event is sent, as its listeners may start a batch
 		}
-		accept(new EntityMovedEvent(ent, prev));
+		accept(moved);
 	}
 
 	/** Determines whether or not a specified Container holds the specified entity */
-	public synchronized boolean containsEntity(Container container, Entity ent) {
+	public boolean containsEntity(Container container, Entity ent) {
 		assert ent != null;
 		assert container != null;
-		assert registeredEntities.containsKey(ent.getID());
+		assert registeredEntities.contains(ent);
 
-		return containerContents.containsEntry(container, ent);
+		return containment.contains(container, ent);
 	}
 
 	/** locates the Container holding an Entity.
 	 * Every Entity is held by exactly one container (possibly the Game itself if no other) */
-	public synchronized Container getEntityLocation(Entity ent) {
+	public Container getEntityLocation(Entity ent) {
 		assert ent != null;
-		assert registeredEntities.containsKey(ent.getID());
+		assert registeredEntities.contains(ent);
+
+		return containment.locate(ent);
+	}
+
+	/** returns all entities contained by the specified container.
+	 * The stream is not a snapshot: entities moved while it is consumed may or may not be included. */
+	public Stream<Entity> getContainerContents(Container container) {
+		assert container != null;
 
-		return entityLocations.get(ent);
+		return containment.contents(container);
 	}
 
-	/** returns all entities contained by the specified container */
-	public synchronized Stream<Entity> getContainerContents(Container container) {
+	/** applies action to every entity contained by the specified container, without copying the contents */
+	public void forEachEntity(Container container, Consumer<? super Entity> action) {
 		assert container != null;
 
-		return new HashSet<Entity>(containerContents.get(container)).stream();
+		containment.forEach(container, action);
+	}
+
+	/** returns the number of entities contained by the specified container */
+	public int countEntities(Container container) {
+		assert container != null;
+
+		return containment.count(container);
+	}
+
+	/** locates the Container holding an Entity, or returns null if the entity has been removed */
+	Container findEntityLocation(Entity ent) {
+		return containment.locate(ent);
 	}
 
 	/** determine what non-entity contains an entity.
 	 * For instance, if an entity is held by a treasure chest and the treasure chest appears on a tile,
 	 * the tile holding the treasure chest is returned.
 	 * Returns null if no tile contains this entity */
-	public synchronized Container getTopLevelEntityLocation(Entity ent) {
+	public Container getTopLevelEntityLocation(Entity ent) {
 		assert ent != null;
 
 		var location = getEntityLocation(ent);
-		if(location == null) return null;
-		if(location instanceof Entity)
-			return getEntityLocation((Entity)location);
+		while(location instanceof Entity)
+			location = containment.locate((Entity)location);
 		return location instanceof Tile ? (Tile)location : null;
 	}
 
@@ -309,12 +623,7 @@ public abstract class Game implements Container, EventProducer {
 	 */
 	@Override
 	public String toString() {
-		var gsonBuilder = new GsonBuilder();
-		var gson = gsonBuilder.create();
-		var m = new HashMap<String,Object>();
-		m.put("type", getClass().getSimpleName());
-		m.put("elapsed-time", getGameTime());
-		return gson.toJson(m);
+		return JsonSerialization.toJson(this);
 	}
 
 }
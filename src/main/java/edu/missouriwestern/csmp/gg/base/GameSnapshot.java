@@ -0,0 +1,522 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.logging.Logger;
+
+/** a compact copy of the state of a {@link Game}, used to restart a game without rebuilding it.
+ * A snapshot holds the registered entities with their properties and headings, where each entity is,
+ * the properties of every tile, the players, the game clock and the entity and event ID counters.
+ * Board layouts are not included; boards must be added to a game before a snapshot is restored into it.
+ * <p>
+ * {@link #capture(Game)} copies this state into memory inside a {@link Game#batch(Runnable) batch}, so
+ * no entity is added, removed or moved while it is copied, and the copy can then be written out at leisure.
+ * The entities and where they are match the game as of event {@link #getNextEventId()}. Properties are
+ * not held back by a batch, so each object's properties are copied as they were at some point during the
+ * capture. The moves and deletions journaled from getNextEventId onwards can be replayed over a restored
+ * snapshot with {@link EventJournal#fastForward}; property changes are not journaled. A periodic checkpoint
+ * is a capture followed by {@link #writeTo(Path)}, run from a scheduled executor.
+ */
+public final class GameSnapshot {
+	private static Logger logger = Logger.getLogger(GameSnapshot.class.getCanonicalName());
+
+	public static final int VERSION = 1;
+	private static final int MAGIC = 0x47475331;  // "GGS1"
+
+	// kinds of container an entity can be held by
+	private static final int IN_GAME = 0;
+	private static final int ON_TILE = 1;
+	private static final int IN_ENTITY = 2;
+	private static final int IN_PLAYER = 3;
+
+	/** creates the objects a snapshot is restored into */
+	public interface Factory {
+		/** constructs an entity of the named class; it will be given the ID it had when captured */
+		Entity createEntity(Game game, String className, Map<String,String> properties);
+
+		/** constructs and adds a player of the named class, or returns null to leave the player out */
+		Player createPlayer(Game game, String className, String id, Map<String,String> properties);
+	}
+
+	/** factory using entity constructors taking (Game, Map) and player constructors taking (String, Game, Map) */
+	public static final Factory REFLECTIVE = new Factory() {
+		@Override
+		public Entity createEntity(Game game, String className, Map<String,String> properties) {
+			return (Entity)construct(className, new Class<?>[] {Game.class, Map.class}, game, properties);
+		}
+
+		@Override
+		public Player createPlayer(Game game, String className, String id, Map<String,String> properties) {
+			return (Player)construct(className, new Class<?>[] {String.class, Game.class, Map.class},
+					id, game, properties);
+		}
+	};
+
+	private static final class EntityState {
+		final int id;
+		final String className;
+		final Map<String,String> properties;
+		final Direction heading;
+		final int locationKind;
+		final String location;  // board or player ID
+		final int column, row;  // tile coordinates, or ID of containing entity in column
+
+		EntityState(int id, String className, Map<String,String> properties, Direction heading,
+		            int locationKind, String location, int column, int row) {
+			this.id = id;
+			this.className = className;
+			this.properties = properties;
+			this.heading = heading;
+			this.locationKind = locationKind;
+			this.location = location;
+			this.column = column;
+			this.row = row;
+		}
+	}
+
+	private static final class TileState {
+		final String board;
+		final int column, row;
+		final Map<String,String> properties;
+
+		TileState(String board, int column, int row, Map<String,String> properties) {
+			this.board = board;
+			this.column = column;
+			this.row = row;
+			this.properties = properties;
+		}
+	}
+
+	private static final class PlayerState {
+		final String id;
+		final String className;
+		final Map<String,String> properties;
+
+		PlayerState(String id, String className, Map<String,String> properties) {
+			this.id = id;
+			this.className = className;
+			this.properties = properties;
+		}
+	}
+
+	private final long gameTime;
+	private final int nextEntityId;
+	private final int nextEventId;
+	private final List<TileState> tiles;
+	private final List<PlayerState> players;
+	private final List<EntityState> entities;
+
+	private GameSnapshot(long gameTime, int nextEntityId, int nextEventId,
+	                     List<TileState> tiles, List<PlayerState> players, List<EntityState> entities) {
+		this.gameTime = gameTime;
+		this.nextEntityId = nextEntityId;
+		this.nextEventId = nextEventId;
+		this.tiles = tiles;
+		this.players = players;
+		this.entities = entities;
+	}
+
+	/** copies the current state of game, holding off changes to its entities until the copy is made */
+	public static GameSnapshot capture(Game game) {
+		var snapshot = new GameSnapshot[1];
+		game.batch(() -> snapshot[0] = copy(game));
+		return snapshot[0];
+	}
+
+	private static GameSnapshot copy(Game game) {
+		int nextEventId = game.peekNextEventId();  // read first, so replay from here covers the whole capture
+		long gameTime = game.getGameTime();
+
+		var tiles = new ArrayList<TileState>();
+		for(var board : game.getBoardsById().entrySet())
+			board.getValue().getTileStream().forEach(tile ->
+					tiles.add(new TileState(board.getKey(), tile.getColumn(), tile.getRow(),
+							copyOf(tile.getProperties()))));
+
+		var players = new ArrayList<PlayerState>();
+		for(var player : game.copyPlayers())
+			players.add(new PlayerState(player.getID(), player.getClass().getName(),
+					copyOf(player.getOwnProperties())));
+
+		var boardIds = new IdentityHashMap<Board,String>();
+		game.getBoardsById().forEach((id, board) -> boardIds.put(board, id));
+		var entities = new ArrayList<EntityState>();
+		game.getEntities().forEach(ent -> {
+			var location = game.findEntityLocation(ent);
+			if(location == null)
+				return;  // not registered any more
+			int kind = IN_GAME, column = 0, row = 0;
+			String where = "";
+			if(location instanceof Tile) {
+				var tile = (Tile)location;
+				kind = ON_TILE;
+				where = boardIds.get(tile.getBoard());
+				column = tile.getColumn();
+				row = tile.getRow();
+				if(where == null)
+					return;  // on a board that was never added to the game, so cannot be restored
+			} else if(location instanceof Entity) {
+				kind = IN_ENTITY;
+				column = ((Entity)location).getID();
+			} else if(location instanceof Player) {
+				kind = IN_PLAYER;
+				where = ((Player)location).getID();
+			}
+			entities.add(new EntityState(ent.getID(), ent.getClass().getName(), copyOf(ent.getOwnProperties()),
+					ent.getHeading(), kind, where, column, row));
+		});
+
+		return new GameSnapshot(gameTime, game.peekNextEntityId(), nextEventId, tiles, players, entities);
+	}
+
+	/** ID of the first event that may not be reflected in this snapshot */
+	public int getNextEventId() {
+		return nextEventId;
+	}
+
+	/** game time, in milliseconds, when this snapshot was captured */
+	public long getGameTime() {
+		return gameTime;
+	}
+
+	/** number of entities in this snapshot */
+	public int getEntityCount() {
+		return entities.size();
+	}
+
+	/** makes game match this snapshot.
+	 * Entities are matched by ID: ones missing from game are constructed by factory, ones game has but the
+	 * snapshot does not are removed, and all of them have their properties, headings and locations set
+	 * from the snapshot. Tile properties are replaced without issuing tile update events, as the snapshot
+	 * is expected to be restored before anyone is watching. The whole restoration runs as one
+	 * {@link Game#batch(Runnable) batch}, and nothing is changed until the snapshot has been checked against
+	 * game, so it is only left part way restored if factory fails.
+	 * The events issued while restoring are numbered from {@link #getNextEventId()}, as a journal kept
+	 * since the capture already is, so register a journal again only once {@link EventJournal#fastForward}
+	 * has moved the game's event IDs past the journaled ones.
+	 * @throws IllegalStateException if a board in the snapshot has not been added to game, an entity
+	 * in game has a different class from the entity with its ID in the snapshot, or the snapshot has an
+	 * entity held inside itself
+	 */
+	public void restore(Game game, Factory factory) {
+		game.batch(() -> {
+			check(game);
+			game.restoreCounters(gameTime, nextEntityId, nextEventId);
+			for(var state : tiles) {
+				var tile = game.getBoard(state.board).getTile(state.column, state.row);
+				if(tile != null && !tile.getProperties().equals(state.properties)) {
+					replace(tile.getProperties(), state.properties);
+					tile.getBoard().tileModified(tile);  // so a chunked board keeps the restored properties
+				}
+			}
+
+			for(var state : players) {
+				var player = game.getPlayer(state.id);
+				if(player == null)
+					player = factory.createPlayer(game, state.className, state.id, state.properties);
+				if(player != null)
+					replace(player.getOwnProperties(), state.properties);
+			}
+
+			var restored = new HashSet<Integer>();
+			for(var state : entities) {
+				var ent = game.getEntity(state.id);
+				if(ent == null)
+					ent = game.restoreEntity(state.id,
+							() -> factory.createEntity(game, state.className, state.properties));
+				replace(ent.getOwnProperties(), state.properties);
+				ent.setHeading(state.heading);
+				restored.add(state.id);
+			}
+			var extra = new ArrayList<Entity>();
+			game.getEntities().filter(ent -> !restored.contains(ent.getID())).forEach(extra::add);
+			extra.forEach(game::removeEntity);
+
+			// entities may be held by entities restored after them, so they are placed once all exist,
+			// after taking every entity out of the others so that no move on the way closes a loop
+			for(var state : entities) {
+				var ent = game.getEntity(state.id);
+				if(game.getEntityLocation(ent) instanceof Entity && locate(game, state) != game.getEntityLocation(ent))
+					game.moveEntity(ent, game);
+			}
+			for(var state : entities) {
+				var ent = game.getEntity(state.id);
+				var location = locate(game, state);
+				if(location == null)
+					logger.warning("could not find container of entity " + state.id + ", leaving it in the game");
+				else if(game.getEntityLocation(ent) != location)
+					game.moveEntity(ent, location);
+			}
+		});
+	}
+
+	/** checks that this snapshot fits game, so that restoring it does not fail part way through */
+	private void check(Game game) {
+		for(var state : tiles)
+			if(game.getBoard(state.board) == null)
+				throw new IllegalStateException("board " + state.board + " must be added before restoring");
+		var holders = new HashMap<Integer,Integer>();  // entity ID -> ID of the entity holding it
+		for(var state : entities) {
+			var ent = game.getEntity(state.id);
+			if(ent != null && !ent.getClass().getName().equals(state.className))
+				throw new IllegalStateException("entity " + state.id + " is a " + ent.getClass().getName() +
+						" but was a " + state.className + " when captured");
+			if(state.locationKind == IN_ENTITY)
+				holders.put(state.id, state.column);
+		}
+		for(var id : holders.keySet()) {
+			int depth = 0;
+			for(var holder = holders.get(id); holder != null; holder = holders.get(holder))
+				if(holder.equals(id) || ++depth > holders.size())
+					throw new IllegalStateException("entity " + id + " is held inside itself in the snapshot");
+		}
+	}
+
+	private static Container locate(Game game, EntityState state) {
+		switch(state.locationKind) {
+			case ON_TILE:
+				var board = game.getBoard(state.location);
+				return board == null ? null : board.getTile(state.column, state.row);
+			case IN_ENTITY:
+				var container = game.getEntity(state.column);
+				return container instanceof Container ? (Container)container : null;
+			case IN_PLAYER:
+				return game.getPlayer(state.location);
+			default:
+				return game;
+		}
+	}
+
+	/** writes this snapshot to file, replacing it only once the new snapshot is complete */
+	public void writeTo(Path file) throws IOException {
+		var temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(var out = Files.newOutputStream(temp)) {
+			writeTo(out);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** writes this snapshot to stream, leaving it open */
+	public void writeTo(OutputStream stream) throws IOException {
+		var out = new SnapshotOutput(stream);
+		out.data.writeInt(MAGIC);
+		out.writeUnsigned(VERSION);
+		out.writeUnsignedLong(gameTime);
+		out.writeUnsigned(nextEntityId);
+		out.writeUnsigned(nextEventId);
+
+		out.writeUnsigned(tiles.size());
+		for(var tile : tiles) {
+			out.writeString(tile.board);
+			out.writeUnsigned(tile.column);
+			out.writeUnsigned(tile.row);
+			out.writeProperties(tile.properties);
+		}
+
+		out.writeUnsigned(players.size());
+		for(var player : players) {
+			out.writeString(player.id);
+			out.writeString(player.className);
+			out.writeProperties(player.properties);
+		}
+
+		out.writeUnsigned(entities.size());
+		for(var ent : entities) {
+			out.writeUnsigned(ent.id);
+			out.writeString(ent.className);
+			out.writeProperties(ent.properties);
+			out.writeUnsigned(ent.heading == null ? 0 : ent.heading.ordinal() + 1);
+			out.writeUnsigned(ent.locationKind);
+			switch(ent.locationKind) {
+				case ON_TILE:
+					out.writeString(ent.location);
+					out.writeUnsigned(ent.column);
+					out.writeUnsigned(ent.row);
+					break;
+				case IN_ENTITY:
+					out.writeUnsigned(ent.column);
+					break;
+				case IN_PLAYER:
+					out.writeString(ent.location);
+					break;
+			}
+		}
+		out.data.flush();
+	}
+
+	/** reads a snapshot written by {@link #writeTo(Path)} */
+	public static GameSnapshot read(Path file) throws IOException {
+		try(var in = Files.newInputStream(file)) {
+			return read(in);
+		}
+	}
+
+	/** reads a snapshot written by {@link #writeTo(OutputStream)} */
+	public static GameSnapshot read(InputStream stream) throws IOException {
+		var in = new SnapshotInput(stream);
+		if(in.data.readInt() != MAGIC)
+			throw new IOException("not a game snapshot");
+		int version = in.readUnsigned();
+		if(version < 1 || version > VERSION)
+			throw new IOException("unsupported snapshot version " + version);
+		long gameTime = in.readUnsignedLong();
+		int nextEntityId = in.readUnsigned();
+		int nextEventId = in.readUnsigned();
+
+		int count = in.readUnsigned();
+		var tiles = new ArrayList<TileState>(count);
+		for(int i = 0; i < count; i++)
+			tiles.add(new TileState(in.readString(), in.readUnsigned(), in.readUnsigned(), in.readProperties()));
+
+		count = in.readUnsigned();
+		var players = new ArrayList<PlayerState>(count);
+		for(int i = 0; i < count; i++)
+			players.add(new PlayerState(in.readString(), in.readString(), in.readProperties()));
+
+		count = in.readUnsigned();
+		var entities = new ArrayList<EntityState>(count);
+		var directions = Direction.values();
+		for(int i = 0; i < count; i++) {
+			int id = in.readUnsigned();
+			var className = in.readString();
+			var properties = in.readProperties();
+			int heading = in.readUnsigned();
+			int kind = in.readUnsigned();
+			String location = "";
+			int column = 0, row = 0;
+			switch(kind) {
+				case ON_TILE:
+					location = in.readString();
+					column = in.readUnsigned();
+					row = in.readUnsigned();
+					break;
+				case IN_ENTITY:
+					column = in.readUnsigned();
+					break;
+				case IN_PLAYER:
+					location = in.readString();
+					break;
+			}
+			entities.add(new EntityState(id, className, properties,
+					heading == 0 ? null : directions[heading - 1], kind, location, column, row));
+		}
+		return new GameSnapshot(gameTime, nextEntityId, nextEventId, tiles, players, entities);
+	}
+
+	/** writes varints, and strings as references to earlier copies where possible */
+	private static final class SnapshotOutput {
+		final DataOutputStream data;
+		private final Map<String,Integer> strings = new HashMap<>();
+
+		SnapshotOutput(OutputStream stream) {
+			this.data = new DataOutputStream(new BufferedOutputStream(stream));
+		}
+
+		void writeUnsigned(int value) throws IOException {
+			writeUnsignedLong(value & 0xffffffffL);
+		}
+
+		void writeUnsignedLong(long value) throws IOException {
+			while((value & ~0x7fL) != 0) {
+				data.writeByte((int)(value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			data.writeByte((int)value);
+		}
+
+		/** 0 introduces a new string; n refers to the n-th string written */
+		void writeString(String s) throws IOException {
+			var index = strings.get(s);
+			if(index != null) {
+				writeUnsigned(index + 1);
+				return;
+			}
+			strings.put(s, strings.size());
+			var bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeUnsigned(0);
+			writeUnsigned(bytes.length);
+			data.write(bytes);
+		}
+
+		void writeProperties(Map<String,String> properties) throws IOException {
+			writeUnsigned(properties.size());
+			for(var entry : properties.entrySet()) {
+				writeString(entry.getKey());
+				writeString(entry.getValue());
+			}
+		}
+	}
+
+	private static final class SnapshotInput {
+		final DataInputStream data;
+		private final List<String> strings = new ArrayList<>();
+
+		SnapshotInput(InputStream stream) {
+			this.data = new DataInputStream(new BufferedInputStream(stream));
+		}
+
+		int readUnsigned() throws IOException {
+			return (int)readUnsignedLong();
+		}
+
+		long readUnsignedLong() throws IOException {
+			long value = 0;
+			for(int shift = 0; shift < 64; shift += 7) {
+				int b = data.readUnsignedByte();
+				value |= (long)(b & 0x7f) << shift;
+				if((b & 0x80) == 0)
+					return value;
+			}
+			throw new IOException("malformed varint in snapshot");
+		}
+
+		String readString() throws IOException {
+			int ref = readUnsigned();
+			if(ref > 0) {
+				if(ref > strings.size())
+					throw new IOException("snapshot refers to unknown string " + ref);
+				return strings.get(ref - 1);
+			}
+			var bytes = new byte[readUnsigned()];
+			data.readFully(bytes);
+			var s = new String(bytes, StandardCharsets.UTF_8);
+			strings.add(s);
+			return s;
+		}
+
+		Map<String,String> readProperties() throws IOException {
+			int count = readUnsigned();
+			var properties = new HashMap<String,String>(count * 2);
+			for(int i = 0; i < count; i++)
+				properties.put(readString(), readString());
+			return properties;
+		}
+	}
+
+	/** copies properties, which are concurrent maps and so may be changed while being copied */
+	private static Map<String,String> copyOf(Map<String,String> properties) {
+		return new HashMap<>(properties);
+	}
+
+	private static void replace(Map<String,String> live, Map<String,String> saved) {
+		live.keySet().retainAll(saved.keySet());
+		live.putAll(saved);
+	}
+
+	private static Object construct(String className, Class<?>[] parameterTypes, Object... arguments) {
+		try {
+			var constructor = Class.forName(className).getDeclaredConstructor(parameterTypes);
+			constructor.setAccessible(true);
+			return constructor.newInstance(arguments);
+		} catch(InvocationTargetException e) {
+			throw new IllegalStateException("could not restore " + className, e.getCause());
+		} catch(ReflectiveOperationException e) {
+			throw new IllegalStateException("could not restore " + className, e);
+		}
+	}
+}
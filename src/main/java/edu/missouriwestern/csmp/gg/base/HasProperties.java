@@ -20,10 +20,7 @@ public interface HasProperties {
     }
 
     /** Creates a JSON representation of the properties */
-    // TODO: use GSON library
     public default String serializeProperties() {
-        return "{" + getProperties().entrySet().stream()
-                .map(e -> "\"" + e.getKey() + "\": " + e.getValue())
-                .reduce((s1, s2) -> s1 + ","+ s2).orElse("") + "}";
+        return JsonSerialization.toJson(getProperties());
     }
 }
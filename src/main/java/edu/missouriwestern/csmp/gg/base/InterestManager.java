@@ -0,0 +1,390 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+import edu.missouriwestern.csmp.gg.base.events.TileStateUpdateEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** limits the spatial events a {@link Player} receives to those near its entities.
+ * A player is managed once it has been given a radius or a focus entity. Managed players are only sent
+ * {@link EntityMovedEvent}s and {@link TileStateUpdateEvent}s that happen within radius tiles
+ * (horizontally or vertically) of a tile holding one of its focus entities, either directly or inside other
+ * entities, so a focus entity carried by another follows it as it moves. Players that are not managed,
+ * and events that do not happen on a tile, are unaffected.
+ * <p>
+ * Areas of interest are indexed in a grid of square cells per board, so finding the players near an
+ * event only looks at the players whose area overlaps the event's cell. The listeners for each class of
+ * event are split once into managed players and everything else, so managed players far from an event
+ * cost nothing when it is sent.
+ */
+public class InterestManager {
+
+	public static final int DEFAULT_RADIUS = 10;
+
+	private final Game game;
+	private final int cellSize;
+	private final Map<Player, Interest> interests = new ConcurrentHashMap<>();
+	private final Map<Entity, Set<Player>> focusOwners = new ConcurrentHashMap<>();
+	// board name -> cell key -> players whose area of interest overlaps that cell
+	private final Map<String, Map<Long, Set<Player>>> cells = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Split> splits = new ConcurrentHashMap<>();  // by event class
+	private volatile int managedVersion;  // changes whenever a player starts or stops being managed
+
+	/**
+	 * @param game game whose players are managed
+	 * @param cellSize width and height, in tiles, of the cells used to index areas of interest
+	 */
+	public InterestManager(Game game, int cellSize) {
+		if(cellSize < 1)
+			throw new IllegalArgumentException("cell size must be positive: " + cellSize);
+		this.game = game;
+		this.cellSize = cellSize;
+	}
+
+	/** sets how far from its focus entities a player receives events, managing the player if it was not already */
+	public synchronized void setRadius(Player player, int radius) {
+		if(radius < 0)
+			throw new IllegalArgumentException("radius must not be negative: " + radius);
+		interest(player).radius = radius;
+		reindex(player);
+	}
+
+	/** adds an entity whose surroundings player should receive events about, managing the player if needed */
+	public synchronized void addFocus(Player player, Entity ent) {
+		interest(player).focus.add(ent);
+		focusOwners.computeIfAbsent(ent, e -> ConcurrentHashMap.newKeySet()).add(player);
+		reindex(player);
+	}
+
+	public synchronized void removeFocus(Player player, Entity ent) {
+		var interest = interests.get(player);
+		if(interest == null || !interest.focus.remove(ent))
+			return;
+		var owners = focusOwners.get(ent);
+		owners.remove(player);
+		if(owners.isEmpty())
+			focusOwners.remove(ent);
+		reindex(player);
+	}
+
+	/** stops managing player, who will once again be sent every event it is subscribed to */
+	public synchronized void release(Player player) {
+		var interest = interests.remove(player);
+		if(interest == null)
+			return;
+		managedVersion++;
+		for(var ent : interest.focus)
+			removeOwner(ent, player);
+		unindex(interest);
+	}
+
+	/** returns whether player's events are being filtered by this manager */
+	public boolean isManaged(Player player) {
+		return interests.containsKey(player);
+	}
+
+	/** returns whether a managed player is interested in things happening on the specified tile */
+	public boolean isInterested(Player player, Tile tile) {
+		var interest = interests.get(player);
+		if(interest == null)
+			return true;
+		var boardCells = cells.get(tile.getBoard().getName());
+		if(boardCells == null)
+			return false;
+		var players = boardCells.get(cellKey(tile.getColumn(), tile.getRow()));
+		return players != null && players.contains(player) && covers(interest, tile);
+	}
+
+	private static boolean covers(Interest interest, Tile tile) {
+		var areas = interest.areas;
+		for(int i = 0; i < areas.size(); i++)
+			if(areas.get(i).contains(tile))
+				return true;
+		return false;
+	}
+
+	/** brings areas of interest up to date after ent, and everything held inside it, has moved */
+	void entityMoved(Entity ent) {
+		if(focusOwners.isEmpty())
+			return;
+		var owners = new HashSet<Player>();
+		addOwners(ent, owners);
+		if(owners.isEmpty())
+			return;
+		synchronized(this) {
+			owners.forEach(this::reindex);
+		}
+	}
+
+	/** adds the players with ent, or anything held inside it, as a focus entity to owners */
+	private void addOwners(Entity ent, Set<Player> owners) {
+		var focused = focusOwners.get(ent);
+		if(focused != null)
+			owners.addAll(focused);
+		if(ent instanceof Container)
+			game.forEachEntity((Container)ent, held -> addOwners(held, owners));
+	}
+
+	/** forgets ent as a focus entity of every player after it has been removed from the game */
+	synchronized void entityRemoved(Entity ent) {
+		var owners = focusOwners.remove(ent);
+		if(owners == null)
+			return;
+		for(var player : owners) {
+			var interest = interests.get(player);
+			if(interest != null) {
+				interest.focus.remove(ent);
+				reindex(player);
+			}
+		}
+	}
+
+	/** removes the managed players in listeners that are not interested in where event happened */
+	Collection<EventListener> filter(Event event, Collection<EventListener> listeners) {
+		if(interests.isEmpty())
+			return listeners;
+		var where = where(event);
+		if(where == null)
+			return listeners;  // not a spatial event
+
+		var filtered = new ArrayList<EventListener>(listeners.size());
+		for(var listener : listeners) {
+			if(!(listener instanceof Player) || !isManaged((Player)listener)
+					|| (where[0] != null && isInterested((Player)listener, where[0]))
+					|| (where[1] != null && isInterested((Player)listener, where[1])))
+				filtered.add(listener);
+		}
+		return filtered;
+	}
+
+	/** removes the managed players in a game route that are not interested in where event happened.
+	 * Only the players indexed in the event's cells are looked at, along with the route's listeners that
+	 * are not managed players, which are worked out once per route.
+	 * @param route the listeners the event's class is routed to; routes are not changed once made
+	 */
+	List<EventListener> filterRoute(Event event, List<EventListener> route) {
+		if(interests.isEmpty())
+			return route;
+		var where = where(event);
+		if(where == null)
+			return route;
+
+		var split = split(event.getClass(), route);
+		if(split.managed.isEmpty())
+			return route;
+		var filtered = new ArrayList<EventListener>(split.unmanaged.size() + 16);
+		filtered.addAll(split.unmanaged);
+		addInterested(filtered, split.managed, where[0], null);
+		addInterested(filtered, split.managed, where[1], where[0]);
+		return filtered;
+	}
+
+	/** returns the tiles a spatial event happened on, either of which may be null, or null if it is not
+	 * a spatial event. A move happened both where the entity was and where it went. */
+	private Tile[] where(Event event) {
+		Tile first = null, second = null;
+		if(event instanceof TileStateUpdateEvent) {
+			first = ((TileStateUpdateEvent)event).getTile();
+		} else if(event instanceof EntityMovedEvent) {
+			var moved = (EntityMovedEvent)event;
+			first = topLevelTile(moved.getPreviousContainer());
+			second = topLevelTile(moved.getNewContainer());
+		}
+		return first == null && second == null ? null : new Tile[] {first, second};
+	}
+
+	/** adds the managed players of a route that are interested in tile, other than those interested in skip */
+	private void addInterested(List<EventListener> filtered, Set<Player> managed, Tile tile, Tile skip) {
+		if(tile == null)
+			return;
+		var boardCells = cells.get(tile.getBoard().getName());
+		var players = boardCells == null ? null : boardCells.get(cellKey(tile.getColumn(), tile.getRow()));
+		if(players == null)
+			return;
+		for(var player : players) {
+			var interest = interests.get(player);
+			if(interest != null && managed.contains(player) && covers(interest, tile)
+					&& (skip == null || !covers(interest, skip)))
+				filtered.add(player);
+		}
+	}
+
+	/** returns the listeners on a route divided into managed players and the rest, reusing the last split
+	 * made for eventClass while neither the route nor the managed players have changed */
+	private Split split(Class<?> eventClass, List<EventListener> route) {
+		int version = managedVersion;
+		var split = splits.get(eventClass);
+		if(split != null && split.route == route && split.version == version)
+			return split;
+		var unmanaged = new ArrayList<EventListener>(route.size());
+		var managed = new HashSet<Player>();
+		for(var listener : route) {
+			if(listener instanceof Player && isManaged((Player)listener))
+				managed.add((Player)listener);
+			else unmanaged.add(listener);
+		}
+		split = new Split(route, version, List.copyOf(unmanaged), Set.copyOf(managed));
+		splits.put(eventClass, split);
+		return split;
+	}
+
+	private Tile topLevelTile(Container container) {
+		if(container instanceof Entity)
+			container = game.getTopLevelEntityLocation((Entity)container);
+		return container instanceof Tile ? (Tile)container : null;
+	}
+
+	private Interest interest(Player player) {
+		var interest = interests.get(player);
+		if(interest == null) {
+			interest = new Interest(player);
+			interests.put(player, interest);
+			managedVersion++;
+		}
+		return interest;
+	}
+
+	private void removeOwner(Entity ent, Player player) {
+		var owners = focusOwners.get(ent);
+		if(owners != null) {
+			owners.remove(player);
+			if(owners.isEmpty())
+				focusOwners.remove(ent);
+		}
+	}
+
+	/** recomputes the area covered by a player's focus entities and updates the cell index to match */
+	private void reindex(Player player) {
+		var interest = interests.get(player);
+		if(interest == null)
+			return;
+		var areas = new ArrayList<Area>();
+		for(var ent : interest.focus) {
+			var tile = topLevelTile(game.getEntityLocation(ent));
+			if(tile != null)
+				areas.add(new Area(tile, interest.radius));
+		}
+		var covered = new HashSet<CellRef>();
+		for(var area : areas)
+			for(int cx = Math.floorDiv(area.minColumn, cellSize); cx <= Math.floorDiv(area.maxColumn, cellSize); cx++)
+				for(int cy = Math.floorDiv(area.minRow, cellSize); cy <= Math.floorDiv(area.maxRow, cellSize); cy++)
+					covered.add(new CellRef(area.board, cx, cy));
+
+		// index new cells before publishing the new areas, and only drop old cells afterwards
+		for(var cell : covered)
+			if(!interest.cells.contains(cell))
+				cells.computeIfAbsent(cell.board, b -> new ConcurrentHashMap<>())
+						.computeIfAbsent(cell.key(), k -> ConcurrentHashMap.newKeySet()).add(player);
+		interest.areas = List.copyOf(areas);
+		for(var cell : interest.cells)
+			if(!covered.contains(cell))
+				unindex(cell, player);
+		interest.cells = covered;
+	}
+
+	private void unindex(Interest interest) {
+		for(var cell : interest.cells)
+			unindex(cell, interest.player);
+		interest.cells = Set.of();
+		interest.areas = List.of();
+	}
+
+	private void unindex(CellRef cell, Player player) {
+		var boardCells = cells.get(cell.board);
+		if(boardCells == null)
+			return;
+		var players = boardCells.get(cell.key());
+		if(players != null) {
+			players.remove(player);
+			if(players.isEmpty())
+				boardCells.remove(cell.key());
+		}
+	}
+
+	private long cellKey(int column, int row) {
+		return ((long)Math.floorDiv(column, cellSize) << 32) | (Math.floorDiv(row, cellSize) & 0xffffffffL);
+	}
+
+	/** what one managed player is interested in */
+	private static final class Interest {
+		private final Player player;
+		private final Set<Entity> focus = ConcurrentHashMap.newKeySet();
+		private volatile int radius = DEFAULT_RADIUS;
+		private volatile List<Area> areas = List.of();
+		private Set<CellRef> cells = Set.of();  // protected by the InterestManager monitor
+
+		private Interest(Player player) {
+			this.player = player;
+		}
+	}
+
+	/** the listeners routed one class of event, divided into managed players and the rest */
+	private static final class Split {
+		private final List<EventListener> route;  // the route this was made from
+		private final int version;                // managedVersion when it was made
+		private final List<EventListener> unmanaged;
+		private final Set<Player> managed;
+
+		private Split(List<EventListener> route, int version, List<EventListener> unmanaged, Set<Player> managed) {
+			this.route = route;
+			this.version = version;
+			this.unmanaged = unmanaged;
+			this.managed = managed;
+		}
+	}
+
+	/** square of tiles around one focus entity */
+	private static final class Area {
+		private final String board;
+		private final int minColumn, maxColumn, minRow, maxRow;
+
+		private Area(Tile center, int radius) {
+			this.board = center.getBoard().getName();
+			this.minColumn = center.getColumn() - radius;
+			this.maxColumn = center.getColumn() + radius;
+			this.minRow = center.getRow() - radius;
+			this.maxRow = center.getRow() + radius;
+		}
+
+		private boolean contains(Tile tile) {
+			return tile.getColumn() >= minColumn && tile.getColumn() <= maxColumn
+					&& tile.getRow() >= minRow && tile.getRow() <= maxRow
+					&& board.equals(tile.getBoard().getName());
+		}
+	}
+
+	/** one cell of the grid on a particular board */
+	private static final class CellRef {
+		private final String board;
+		private final int column, row;
+
+		private CellRef(String board, int column, int row) {
+			this.board = board;
+			this.column = column;
+			this.row = row;
+		}
+
+		private long key() {
+			return ((long)column << 32) | (row & 0xffffffffL);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof CellRef))
+				return false;
+			var other = (CellRef)o;
+			return column == other.column && row == other.row && board.equals(other.board);
+		}
+
+		@Override
+		public int hashCode() {
+			return (board.hashCode() * 31 + column) * 31 + row;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/** converts game objects to the JSON sent to clients.
+ * A single {@link Gson} instance is shared by the whole library, with an adapter for each kind of game
+ * object that streams its fields straight to a {@link JsonWriter} instead of building a tree or map first.
+ * The adapters only write JSON; reading a game object back from it fails with a {@link JsonParseException}.
+ */
+public final class JsonSerialization {
+
+	/** shared Gson instance that knows how to write every kind of game object */
+	public static final Gson GSON = new GsonBuilder()
+			.registerTypeHierarchyAdapter(Game.class, new GameAdapter())
+			.registerTypeHierarchyAdapter(Board.class, new BoardAdapter())
+			.registerTypeHierarchyAdapter(Tile.class, new TileAdapter())
+			.registerTypeHierarchyAdapter(Entity.class, new EntityAdapter())
+			.registerTypeHierarchyAdapter(Player.class, new PlayerAdapter())
+			.registerTypeHierarchyAdapter(Event.class, new EventAdapter())
+			.registerTypeAdapter(EventRecord.class, new EventRecordAdapter())
+			.create();
+
+	private JsonSerialization() { }
+
+	/** returns the JSON representation of a game object */
+	public static String toJson(Object object) {
+		var out = new StringWriter();
+		write(object, out);
+		return out.toString();
+	}
+
+	/** appends the JSON representation of a game object to out */
+	public static void write(Object object, Appendable out) {
+		GSON.toJson(object, object.getClass(), out);
+	}
+
+	/** returns the JSON representation of a game object encoded as UTF-8 */
+	public static byte[] toUtf8(Object object) {
+		var bytes = new ByteArrayOutputStream();
+		var out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+		write(object, out);
+		try {
+			out.flush();
+		} catch(IOException e) {
+			throw new JsonIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/** writes the JSON representation of a game object as the next value of an existing writer */
+	public static void write(Object object, JsonWriter out) {
+		GSON.toJson(object, object.getClass(), out);
+	}
+
+	/** returns a JSON object holding the specified properties */
+	public static String toJson(Map<String,String> properties) {
+		var out = new StringWriter();
+		try {
+			writeProperties(GSON.newJsonWriter(out), properties);
+		} catch(IOException e) {
+			throw new JsonIOException(e);
+		}
+		return out.toString();
+	}
+
+	private static void writeProperties(JsonWriter out, Map<String,String> properties) throws IOException {
+		out.beginObject();
+		for(var property : properties.entrySet())
+			out.name(property.getKey()).value(property.getValue());
+		out.endObject();
+	}
+
+	/** base for adapters that can only write */
+	private abstract static class WriteOnlyAdapter<T> extends TypeAdapter<T> {
+		@Override
+		public T read(JsonReader in) {
+			throw new JsonParseException("game objects are only written as JSON and cannot be read back from it");
+		}
+	}
+
+	private static final class GameAdapter extends WriteOnlyAdapter<Game> {
+		@Override
+		public void write(JsonWriter out, Game game) throws IOException {
+			out.beginObject();
+			out.name("type").value(game.getClass().getSimpleName());
+			out.name("elapsed-time").value(game.getGameTime());
+			out.endObject();
+		}
+	}
+
+	private static final class BoardAdapter extends WriteOnlyAdapter<Board> {
+		@Override
+		public void write(JsonWriter out, Board board) throws IOException {
+			out.beginObject();
+			out.name("height").value(board.getHeight());
+			out.name("width").value(board.getWidth());
+			out.name("tilemap").value(board.getTileMap());
+			out.name("tileTypes").beginObject();
+			for(var type : board.getTileTypeChars().entrySet())
+				out.name(type.getKey().toString()).value(type.getValue());
+			out.endObject();
+			out.endObject();
+		}
+	}
+
+	private static final class TileAdapter extends WriteOnlyAdapter<Tile> {
+		@Override
+		public void write(JsonWriter out, Tile tile) throws IOException {
+			out.beginObject();
+			out.name("row").value(tile.getRow());
+			out.name("column").value(tile.getColumn());
+			out.name("board").value(tile.getBoard().getName());
+			out.name("type").value(tile.getTypeName());
+			out.name("properties");
+			writeProperties(out, tile.getProperties());
+			out.endObject();
+		}
+	}
+
+	private static final class EntityAdapter extends WriteOnlyAdapter<Entity> {
+		@Override
+		public void write(JsonWriter out, Entity ent) throws IOException {
+			out.beginObject();
+			var container = ent.getGame().getEntityLocation(ent);
+			if(container instanceof Tile) {
+				var tile = (Tile)container;
+				out.name("board").value(tile.getBoard().getName());
+				out.name("column").value(tile.getColumn());
+				out.name("row").value(tile.getRow());
+				if(ent.getHeading() != null)
+					out.name("heading").value(ent.getHeading().name());
+			} else if(container instanceof Entity) {
+				out.name("container").value(((Entity)container).getID());
+			}
+			out.name("id").value(ent.getID());
+			out.name("type").value(ent.getType());
+			out.name("properties");
+			writeProperties(out, ent.getOwnProperties());
+			out.endObject();
+		}
+	}
+
+	private static final class PlayerAdapter extends WriteOnlyAdapter<Player> {
+		@Override
+		public void write(JsonWriter out, Player player) throws IOException {
+			out.beginObject();
+			out.name("id").value(player.getID());
+			out.name("inventory").beginArray();
+			for(var it = player.getEntities().iterator(); it.hasNext(); )
+				out.value(it.next().getID());
+			out.endArray();
+			out.name("properties");
+			writeProperties(out, player.getOwnProperties());
+			out.endObject();
+		}
+	}
+
+	private static final class EventAdapter extends WriteOnlyAdapter<Event> {
+		@Override
+		public void write(JsonWriter out, Event event) throws IOException {
+			writeEvent(out, event.getId(), event.getEventTime(), event.getClass().getSimpleName(),
+					event.getProperties());
+		}
+	}
+
+	private static final class EventRecordAdapter extends WriteOnlyAdapter<EventRecord> {
+		@Override
+		public void write(JsonWriter out, EventRecord record) throws IOException {
+			writeEvent(out, record.getId(), record.getEventTime(), record.getType(), record.getProperties());
+		}
+	}
+
+	private static void writeEvent(JsonWriter out, int id, long time, String type, Map<String,String> properties)
+			throws IOException {
+		out.beginObject();
+		out.name("id").value(id);
+		out.name("time").value(time);
+		out.name("type").value(type);
+		out.name("properties");
+		writeProperties(out, properties);
+		out.endObject();
+	}
+}
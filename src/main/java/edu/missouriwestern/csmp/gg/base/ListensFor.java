@@ -0,0 +1,19 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts the events an {@link EventListener} receives when registered with
+ * {@link Game#registerListener(EventListener)}. The listener will only be sent events that are
+ * instances of one of the listed classes. Listeners without this annotation receive every event.
+ */
+@Retention(RetentionPolicy.RUNTIME) // read when the listener is registered
+@Target(ElementType.TYPE)
+@Inherited
+public @interface ListensFor {
+	Class<? extends Event>[] value();
+}
@@ -0,0 +1,16 @@
+package edu.missouriwestern.csmp.gg.base;
+
+/** determines what a {@link QueuedEventDispatcher} does when a listener's queue is full */
+public enum OverflowPolicy {
+
+	/** the thread dispatching the event waits until the listener has caught up */
+	BLOCK,
+
+	/** the oldest queued event is discarded to make room for the new one */
+	DROP_OLDEST,
+
+	/** a queued event describing the same thing (for instance, an earlier move of the same entity)
+	 * is replaced by the new one. Falls back to {@link #DROP_OLDEST} when nothing can be coalesced.
+	 */
+	COALESCE
+}
@@ -0,0 +1,433 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.TileStateUpdateEvent;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/** finds paths between the tiles of a {@link Board}, moving one tile north, south, east or west at a time.
+ * Which tiles can be walked on is decided by a passability predicate, evaluated once per tile and kept
+ * in a bitmap; a tile is re-evaluated whenever a {@link TileStateUpdateEvent} reports that it changed.
+ * Three searches are offered:
+ * <ul>
+ * <li>{@link #findPath} is A* over primitive arrays, reused between searches on the same thread</li>
+ * <li>{@link #findPathJps} is Jump Point Search, which skips over runs of open tiles and is usually
+ * much faster on open maps; paths it finds are as short as those from A*, though not always the same</li>
+ * <li>{@link #getFlowField} gives, for every tile, the way towards one goal, so that any number of
+ * entities heading there can share a single search. Flow fields are cached until passability changes.</li>
+ * </ul>
+ * Searches between tiles in different regions of the {@link ConnectivityIndex} fail at once.
+ * Use {@link Board#getPathfinder()} to get the pathfinder for a board.
+ */
+public class Pathfinder implements EventListener {
+
+	/** tiles are passable unless their "passable" property is "false" */
+	public static final Predicate<Tile> DEFAULT_PASSABILITY = tile -> !"false".equals(tile.getProperties().get("passable"));
+
+	private static final int FLOW_FIELD_CACHE_SIZE = 64;
+
+	private final Board board;
+	private final int width;
+	private final int height;
+	private final long[] passable;  // bit per cell, row-major; cells without tiles are never passable
+	private volatile Predicate<Tile> passability;
+	private volatile int version;  // incremented whenever passability changes
+	private final Map<Integer,FlowField> flowFields = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer,FlowField> eldest) {
+			return size() > FLOW_FIELD_CACHE_SIZE;
+		}
+	};
+	private final ThreadLocal<Search> searches;
+	private final ConnectivityIndex connectivity;
+
+	Pathfinder(Board board, Predicate<Tile> passability) {
+		this.board = board;
+		this.width = board.getWidth();
+		this.height = board.getHeight();
+		this.passable = new long[(width * height + 63) >>> 6];
+		this.searches = ThreadLocal.withInitial(() -> new Search(width * height));
+		this.connectivity = new ConnectivityIndex(this, width, height);
+		setPassability(passability);
+	}
+
+	public Board getBoard() {
+		return board;
+	}
+
+	/** replaces the rule deciding which tiles can be walked on, re-evaluating every tile */
+	public synchronized void setPassability(Predicate<Tile> passability) {
+		this.passability = passability;
+		for(int row = 0; row < height; row++)
+			for(int column = 0; column < width; column++)
+				update(column, row);
+		connectivity.rebuild();
+		version++;
+	}
+
+	/** re-evaluates every tile, for passability rules that depend on more than the tiles' own state */
+	public void invalidate() {
+		setPassability(passability);
+	}
+
+	/** re-evaluates a tile when its properties change */
+	@Override
+	public void accept(Event event) {
+		if(event instanceof TileStateUpdateEvent) {
+			var update = (TileStateUpdateEvent)event;
+			if(update.getBoard() == board) {
+				synchronized(this) {
+					if(update(update.getColumn(), update.getRow())) {
+						connectivity.cellChanged(update.getColumn(), update.getRow(),
+								isPassable(update.getColumn(), update.getRow()));
+						version++;
+					}
+				}
+			}
+		}
+	}
+
+	/** sets the bit for a cell from the predicate, returning whether it changed */
+	private boolean update(int column, int row) {
+		var tile = board.getTile(column, row);
+		int cell = row * width + column;
+		boolean was = (passable[cell >>> 6] & (1L << cell)) != 0;
+		boolean is = tile != null && passability.test(tile);
+		if(is)
+			passable[cell >>> 6] |= 1L << cell;
+		else passable[cell >>> 6] &= ~(1L << cell);
+		return was != is;
+	}
+
+	/** returns the index of which tiles can reach one another under this pathfinder's passability rule */
+	public ConnectivityIndex getConnectivityIndex() {
+		return connectivity;
+	}
+
+	/** number of times passability has changed, used to tell when cached results are stale */
+	int getVersion() {
+		return version;
+	}
+
+	public boolean isPassable(Tile tile) {
+		return tile.getBoard() == board && isPassable(tile.getColumn(), tile.getRow());
+	}
+
+	public boolean isPassable(int column, int row) {
+		if(column < 0 || row < 0 || column >= width || row >= height)
+			return false;
+		int cell = row * width + column;
+		return (passable[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/** finds a shortest path from one tile to another with A*.
+	 * @return the tiles to step on, ending with to and not including from, or empty if to cannot be reached
+	 */
+	public Optional<List<Tile>> findPath(Tile from, Tile to) {
+		if(!connectivity.isConnected(from, to))
+			return Optional.empty();  // saves searching every tile reachable from from
+		int start = cell(from), goal = cell(to);
+		int goalColumn = to.getColumn(), goalRow = to.getRow();
+		var s = searches.get();
+		s.begin();
+		s.reach(start, 0, -1);
+		s.push(heuristic(start, goalColumn, goalRow), start);
+		while(s.size > 0) {
+			int node = s.pop();
+			if(s.isClosed(node))
+				continue;
+			s.close(node);
+			if(node == goal)
+				return Optional.of(s.path(this, start, goal));
+			int column = node % width, row = node / width;
+			int g = s.g[node] + 1;
+			expand(s, node, column, row - 1, g, goalColumn, goalRow);
+			expand(s, node, column, row + 1, g, goalColumn, goalRow);
+			expand(s, node, column - 1, row, g, goalColumn, goalRow);
+			expand(s, node, column + 1, row, g, goalColumn, goalRow);
+		}
+		return Optional.empty();
+	}
+
+	private void expand(Search s, int parent, int column, int row, int g, int goalColumn, int goalRow) {
+		if(!isPassable(column, row))
+			return;
+		int node = row * width + column;
+		if(s.isClosed(node) || (s.isReached(node) && s.g[node] <= g))
+			return;
+		s.reach(node, g, parent);
+		s.push(g + Math.abs(column - goalColumn) + Math.abs(row - goalRow), node);
+	}
+
+	/** finds a shortest path from one tile to another with Jump Point Search.
+	 * Horizontal moves continue until they reach the goal or pass a tile where a vertical move becomes
+	 * possible that was not possible from the tile before; vertical moves stop wherever a horizontal
+	 * scan from them finds such a tile. Only the tiles where moves stop are put in the open set.
+	 * @return the tiles to step on, ending with to and not including from, or empty if to cannot be reached
+	 */
+	public Optional<List<Tile>> findPathJps(Tile from, Tile to) {
+		if(!connectivity.isConnected(from, to))
+			return Optional.empty();
+		int start = cell(from), goal = cell(to);
+		int goalColumn = to.getColumn(), goalRow = to.getRow();
+		var s = searches.get();
+		s.begin();
+		s.reach(start, 0, -1);
+		s.push(heuristic(start, goalColumn, goalRow), start);
+		while(s.size > 0) {
+			int node = s.pop();
+			if(s.isClosed(node))
+				continue;
+			s.close(node);
+			if(node == goal)
+				return Optional.of(s.path(this, start, goal));
+			int column = node % width, row = node / width;
+			int parent = s.parent[node];
+			if(parent < 0) {
+				jumpFrom(s, node, jumpHorizontal(column, row, 1, goal), goalColumn, goalRow);
+				jumpFrom(s, node, jumpHorizontal(column, row, -1, goal), goalColumn, goalRow);
+				jumpFrom(s, node, jumpVertical(column, row, 1, goal), goalColumn, goalRow);
+				jumpFrom(s, node, jumpVertical(column, row, -1, goal), goalColumn, goalRow);
+				continue;
+			}
+			int dx = Integer.signum(column - parent % width), dy = Integer.signum(row - parent / width);
+			if(dy == 0) {
+				jumpFrom(s, node, jumpHorizontal(column, row, dx, goal), goalColumn, goalRow);
+				for(int vertical = -1; vertical <= 1; vertical += 2)
+					if(isPassable(column, row + vertical) && !isPassable(column - dx, row + vertical))
+						jumpFrom(s, node, jumpVertical(column, row, vertical, goal), goalColumn, goalRow);
+			} else {
+				jumpFrom(s, node, jumpVertical(column, row, dy, goal), goalColumn, goalRow);
+				jumpFrom(s, node, jumpHorizontal(column, row, 1, goal), goalColumn, goalRow);
+				jumpFrom(s, node, jumpHorizontal(column, row, -1, goal), goalColumn, goalRow);
+			}
+		}
+		return Optional.empty();
+	}
+
+	private void jumpFrom(Search s, int parent, int node, int goalColumn, int goalRow) {
+		if(node < 0 || s.isClosed(node))
+			return;
+		int column = node % width, row = node / width;
+		int g = s.g[parent] + Math.abs(column - parent % width) + Math.abs(row - parent / width);
+		if(s.isReached(node) && s.g[node] <= g)
+			return;
+		s.reach(node, g, parent);
+		s.push(g + Math.abs(column - goalColumn) + Math.abs(row - goalRow), node);
+	}
+
+	/** moves along a row from a cell until reaching a jump point, returning it, or -1 if there is none */
+	private int jumpHorizontal(int column, int row, int dx, int goal) {
+		while(true) {
+			column += dx;
+			if(!isPassable(column, row))
+				return -1;
+			int node = row * width + column;
+			if(node == goal)
+				return node;
+			if((isPassable(column, row - 1) && !isPassable(column - dx, row - 1)) ||
+					(isPassable(column, row + 1) && !isPassable(column - dx, row + 1)))
+				return node;
+		}
+	}
+
+	/** moves along a column from a cell until a horizontal jump from it succeeds, returning the cell, or -1 */
+	private int jumpVertical(int column, int row, int dy, int goal) {
+		while(true) {
+			row += dy;
+			if(!isPassable(column, row))
+				return -1;
+			int node = row * width + column;
+			if(node == goal || jumpHorizontal(column, row, 1, goal) >= 0 || jumpHorizontal(column, row, -1, goal) >= 0)
+				return node;
+		}
+	}
+
+	/** returns the flow field leading to goal, building it if no up-to-date one is cached */
+	public FlowField getFlowField(Tile goal) {
+		if(goal.getBoard() != board)
+			throw new IllegalArgumentException("goal " + goal + " is not on board " + board.getName());
+		int cell = cell(goal);
+		int version = this.version;  // read before building, so a field built during a change is stale
+		synchronized(flowFields) {
+			var field = flowFields.get(cell);
+			if(field != null && field.version == version)
+				return field;
+		}
+		var field = new FlowField(goal, version);
+		synchronized(flowFields) {
+			flowFields.put(cell, field);
+		}
+		return field;
+	}
+
+	private int cell(Tile tile) {
+		return tile.getRow() * width + tile.getColumn();
+	}
+
+	private int heuristic(int cell, int goalColumn, int goalRow) {
+		return Math.abs(cell % width - goalColumn) + Math.abs(cell / width - goalRow);
+	}
+
+	/** distances from every tile on a board to one goal tile, for steering many entities to the same place */
+	public final class FlowField {
+		private final Tile goal;
+		private final int version;
+		private final int[] distance;  // steps to the goal, or -1 where the goal cannot be reached
+
+		private FlowField(Tile goal, int version) {
+			this.goal = goal;
+			this.version = version;
+			this.distance = new int[width * height];
+			Arrays.fill(distance, -1);
+			if(!isPassable(goal))
+				return;
+			var queue = new int[width * height];
+			int head = 0, tail = 0;
+			queue[tail++] = cell(goal);
+			distance[cell(goal)] = 0;
+			while(head < tail) {  // breadth-first search outwards from the goal
+				int node = queue[head++];
+				int column = node % width, row = node / width, d = distance[node] + 1;
+				tail = visit(queue, tail, column, row - 1, d);
+				tail = visit(queue, tail, column, row + 1, d);
+				tail = visit(queue, tail, column - 1, row, d);
+				tail = visit(queue, tail, column + 1, row, d);
+			}
+		}
+
+		private int visit(int[] queue, int tail, int column, int row, int d) {
+			if(!isPassable(column, row) || distance[row * width + column] >= 0)
+				return tail;
+			distance[row * width + column] = d;
+			queue[tail] = row * width + column;
+			return tail + 1;
+		}
+
+		public Tile getGoal() {
+			return goal;
+		}
+
+		/** whether passability has not changed since this field was built */
+		public boolean isCurrent() {
+			return version == Pathfinder.this.version;
+		}
+
+		/** number of steps from tile to the goal, or -1 if the goal cannot be reached from it */
+		public int getDistance(Tile tile) {
+			return tile.getBoard() == board ? distance[cell(tile)] : -1;
+		}
+
+		/** direction of a step from tile towards the goal, or null at the goal or where it cannot be reached */
+		public Direction getDirection(Tile tile) {
+			int d = getDistance(tile);
+			if(d <= 0)
+				return null;
+			int column = tile.getColumn(), row = tile.getRow();
+			if(closer(column, row - 1, d)) return Direction.NORTH;
+			if(closer(column + 1, row, d)) return Direction.EAST;
+			if(closer(column, row + 1, d)) return Direction.SOUTH;
+			if(closer(column - 1, row, d)) return Direction.WEST;
+			return null;
+		}
+
+		/** next tile on the way from tile to the goal, or null at the goal or where it cannot be reached */
+		public Tile next(Tile tile) {
+			var direction = getDirection(tile);
+			return direction == null ? null : board.getAdjacentTile(tile, direction);
+		}
+
+		private boolean closer(int column, int row, int d) {
+			return column >= 0 && row >= 0 && column < width && row < height &&
+					distance[row * width + column] == d - 1 && distance[row * width + column] >= 0;
+		}
+	}
+
+	/** working state of one search, kept per thread and reused. Cells are marked as reached or closed
+	 * by stamping them with the current search's number, so nothing needs clearing between searches. */
+	private static final class Search {
+		final int[] g;
+		final int[] parent;
+		final int[] reached;
+		final int[] closed;
+		int generation;
+		long[] heap = new long[256];  // f in the high half, cell in the low half
+		int size;
+
+		Search(int cells) {
+			g = new int[cells];
+			parent = new int[cells];
+			reached = new int[cells];
+			closed = new int[cells];
+		}
+
+		void begin() {
+			size = 0;
+			if(++generation == 0) {  // wrapped around, so old stamps could match again
+				Arrays.fill(reached, 0);
+				Arrays.fill(closed, 0);
+				generation = 1;
+			}
+		}
+
+		boolean isReached(int cell) { return reached[cell] == generation; }
+		boolean isClosed(int cell) { return closed[cell] == generation; }
+		void close(int cell) { closed[cell] = generation; }
+
+		void reach(int cell, int cost, int from) {
+			reached[cell] = generation;
+			g[cell] = cost;
+			parent[cell] = from;
+		}
+
+		void push(int f, int cell) {
+			if(size == heap.length)
+				heap = Arrays.copyOf(heap, size * 2);
+			long entry = ((long)f << 32) | cell;
+			int i = size++;
+			while(i > 0) {
+				int up = (i - 1) >>> 1;
+				if(heap[up] <= entry)
+					break;
+				heap[i] = heap[up];
+				i = up;
+			}
+			heap[i] = entry;
+		}
+
+		int pop() {
+			long top = heap[0];
+			long last = heap[--size];
+			int i = 0;
+			while(true) {
+				int child = 2 * i + 1;
+				if(child >= size)
+					break;
+				if(child + 1 < size && heap[child + 1] < heap[child])
+					child++;
+				if(heap[child] >= last)
+					break;
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+			return (int)top;
+		}
+
+		/** the tiles from start to goal, filling in the straight runs between jump points */
+		List<Tile> path(Pathfinder pathfinder, int start, int goal) {
+			int width = pathfinder.width;
+			var cells = new ArrayList<Integer>();
+			for(int node = goal; node != start; node = parent[node]) {
+				int from = parent[node];
+				int dx = Integer.signum(node % width - from % width), dy = Integer.signum(node / width - from / width);
+				for(int cell = node; cell != from; cell -= dy * width + dx)
+					cells.add(cell);
+			}
+			var path = new ArrayList<Tile>(cells.size());
+			for(int i = cells.size() - 1; i >= 0; i--)
+				path.add(pathfinder.board.getTile(cells.get(i) % width, cells.get(i) / width));
+			return path;
+		}
+	}
+}
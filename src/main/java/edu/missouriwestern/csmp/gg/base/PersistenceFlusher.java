@@ -0,0 +1,63 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** periodically saves the properties changed on a game's entities and players to its {@link DataStore}.
+ * Only properties changed since the last save are written, all of them in one
+ * {@link DataStore#saveAllChanges(java.util.Map)}. Changes to entities are only tracked for
+ * {@link Permanent} entities, and not at all in games without a data store.
+ */
+public class PersistenceFlusher implements Closeable {
+	private static Logger logger = Logger.getLogger(PersistenceFlusher.class.getCanonicalName());
+
+	private final Game game;
+	private final ScheduledExecutorService timer;
+
+	/** starts saving the changes to game every periodMillis milliseconds */
+	public PersistenceFlusher(Game game, long periodMillis) {
+		if(game.getDataStore() == null)
+			throw new IllegalArgumentException("game has no data store to save changes to");
+		this.game = game;
+		this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "persistence-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(() -> {
+			try {
+				flush();
+			} catch(RuntimeException e) {
+				logger.log(Level.WARNING, "could not save changes, will retry", e);
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/** saves all unsaved changes now.
+	 * If saving fails, the changes are kept to be saved next time and the exception is rethrown.
+	 * @return the number of objects saved
+	 */
+	public synchronized int flush() {
+		var changes = game.takeChanges();
+		if(changes.isEmpty())
+			return 0;
+		try {
+			game.getDataStore().saveAllChanges(changes);
+		} catch(RuntimeException e) {
+			game.restoreChanges(changes);
+			throw e;
+		}
+		return changes.size();
+	}
+
+	/** stops saving periodically, after saving any remaining changes */
+	@Override
+	public void close() {
+		timer.shutdown();
+		flush();
+	}
+}
@@ -1,29 +1,32 @@
 package edu.missouriwestern.csmp.gg.base;
 
-import com.google.gson.GsonBuilder;
 import edu.missouriwestern.csmp.gg.base.events.CommandEvent;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** represents a player within the game
  * not an {@link Entity} as a player may potentially comprise multiple entities within the game.
  * Intended to house client connection code.
  *
  * Instanciating classes must include implementation of accept(Event) and forward
- * serialized events to clients.
+ * serialized events to clients. Implementing {@link EncodedEventListener} as well lets them forward
+ * the serialized form shared by all players instead of serializing each event again.
  */
 public abstract class Player implements Container, HasProperties, EventListener {
 
 	private final String id;
 	private final Map<String,String> properties;
 	private final Game game;
+	private final Set<String> changedProperties = ConcurrentHashMap.newKeySet();  // not yet persisted
 
 	public Player(String id, Game game, Map<String,String> properties){
 		this.id = id;
 		this.game = game;
-		this.properties = new HashMap<>(properties);
+		this.properties = new ConcurrentHashMap<>(properties);
 		game.addPlayer(this);
 		game.registerListener(this);
 	}
@@ -40,9 +43,31 @@ public abstract class Player implements Container, HasProperties, EventListener
 	@Override
 	public final Game getGame() { return game; }
 
+	/** sets a property, recording the change to be persisted */
 	@Override
 	public void setProperty(String key, String value) {
 		properties.put(key, value);
+		markChanged(Set.of(key));
+	}
+
+	/** records properties as changed since they were last persisted */
+	void markChanged(Collection<String> keys) {
+		changedProperties.addAll(keys);
+		game.markDirty(this);
+	}
+
+	/** returns the current values of the properties changed since the last call, forgetting the changes */
+	Map<String,String> takeChanges() {
+		var changes = new HashMap<String,String>();
+		for(var key : changedProperties)
+			if(changedProperties.remove(key) && properties.containsKey(key))
+				changes.put(key, properties.get(key));
+		return changes;
+	}
+
+	/** forgets changes, for instance after the properties were loaded from the data store */
+	void clearChanges() {
+		changedProperties.clear();
 	}
 
 	@Override
@@ -52,6 +77,11 @@ public abstract class Player implements Container, HasProperties, EventListener
 		return properties;
 	}
 
+	/** properties of this player, not including its id */
+	Map<String,String> getOwnProperties() {
+		return properties;
+	}
+
 	/**
 	 * Returns the ID of the Player
 	 * @return the ID of the Player
@@ -63,12 +93,6 @@ public abstract class Player implements Container, HasProperties, EventListener
 	 */
 	@Override
 	public String toString() {
-		var gsonBuilder = new GsonBuilder();
-		var gson = gsonBuilder.create();
-		var m = new HashMap<String,Object>();
-		m.put("id", getID());
-		m.put("inventory", getEntities().map(Entity::getID).collect(Collectors.toList()));
-		m.put("properties", properties);
-		return gson.toJson(m);
+		return JsonSerialization.toJson(this);
 	}
 }
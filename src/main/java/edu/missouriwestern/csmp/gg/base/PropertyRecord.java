@@ -0,0 +1,30 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** stands in for an entity that has not been constructed yet, recording the properties loaded into it */
+final class PropertyRecord implements HasProperties {
+	private final Map<String,String> properties = new HashMap<>();
+
+	PropertyRecord(int id) {
+		properties.put("id", "" + id);
+	}
+
+	@Override
+	public Map<String,String> getProperties() {
+		return properties;
+	}
+
+	@Override
+	public void setProperty(String key, String value) {
+		properties.put(key, value);
+	}
+
+	/** the properties loaded, without the id */
+	Map<String,String> getLoadedProperties() {
+		var loaded = new HashMap<>(properties);
+		loaded.remove("id");
+		return loaded;
+	}
+}
@@ -0,0 +1,243 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import edu.missouriwestern.csmp.gg.base.events.EntityMovedEvent;
+import edu.missouriwestern.csmp.gg.base.events.TileStateUpdateEvent;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** delivers events asynchronously through a bounded queue per listener.
+ * Each queue is drained by at most one task at a time, so a listener always sees events in the order
+ * they were dispatched, while a slow listener only delays itself. If the executor refuses a drain task,
+ * the queue is drained on the thread that tried to schedule it instead.
+ * <p>
+ * Events dispatched to a listener after it has been released, or to any listener after
+ * {@link #shutdown()}, are discarded.
+ * <p>
+ * With {@link OverflowPolicy#BLOCK}, a listener must not dispatch events to itself from within accept,
+ * as it would wait on its own queue.
+ */
+public class QueuedEventDispatcher implements EventDispatcher {
+	private static Logger logger = Logger.getLogger(QueuedEventDispatcher.class.getCanonicalName());
+
+	/** number of events delivered before a drain task yields its thread to other listeners */
+	private static final int DRAIN_BATCH = 64;
+
+	private final Map<EventListener, ListenerQueue> queues = new ConcurrentHashMap<>();
+	// released listeners, so that dispatches already under way do not give them new queues
+	private final Set<EventListener> released =
+			Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	private volatile boolean shutdown = false;
+	private final Executor executor;
+	private final ExecutorService ownedExecutor; // null when executor was supplied by the caller
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final Function<Event,Object> coalescingKey;
+	private final AtomicLong droppedEvents = new AtomicLong();
+
+	/** creates a dispatcher draining queues on its own fixed pool with one thread per processor */
+	public QueuedEventDispatcher(int capacity, OverflowPolicy policy) {
+		this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+			var thread = new Thread(r, "event-dispatch");
+			thread.setDaemon(true);
+			return thread;
+		}), true, capacity, policy, QueuedEventDispatcher::defaultCoalescingKey);
+	}
+
+	/** creates a dispatcher draining queues on the supplied executor (for instance, a virtual thread executor) */
+	public QueuedEventDispatcher(Executor executor, int capacity, OverflowPolicy policy) {
+		this(executor, capacity, policy, QueuedEventDispatcher::defaultCoalescingKey);
+	}
+
+	/**
+	 * @param executor runs the tasks that drain listener queues
+	 * @param capacity maximum number of undelivered events held for each listener
+	 * @param policy behavior when a listener's queue is full
+	 * @param coalescingKey identifies what an event describes; two events with equal keys may be
+	 *                      coalesced under {@link OverflowPolicy#COALESCE}. Null keys are never coalesced.
+	 */
+	public QueuedEventDispatcher(Executor executor, int capacity, OverflowPolicy policy,
+	                             Function<Event,Object> coalescingKey) {
+		this(executor, false, capacity, policy, coalescingKey);
+	}
+
+	private QueuedEventDispatcher(Executor executor, boolean owned, int capacity, OverflowPolicy policy,
+	                              Function<Event,Object> coalescingKey) {
+		if(capacity < 1)
+			throw new IllegalArgumentException("queue capacity must be positive: " + capacity);
+		this.executor = executor;
+		this.ownedExecutor = owned ? (ExecutorService)executor : null;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.coalescingKey = coalescingKey;
+	}
+
+	/** coalesces moves of the same entity and updates of the same tile */
+	public static Object defaultCoalescingKey(Event event) {
+		if(event instanceof EntityMovedEvent)
+			return ((EntityMovedEvent)event).getEntity();
+		if(event instanceof TileStateUpdateEvent)
+			return ((TileStateUpdateEvent)event).getTile();
+		return null;
+	}
+
+	@Override
+	public void dispatch(Event event, Collection<EventListener> listeners) {
+		if(shutdown) {
+			droppedEvents.addAndGet(listeners.size());
+			return;
+		}
+		for(var listener : listeners) {
+			var queue = queues.computeIfAbsent(listener, l -> released.contains(l) ? null : new ListenerQueue(l));
+			if(queue != null)
+				queue.offer(event);
+		}
+	}
+
+	@Override
+	public void register(EventListener listener) {
+		released.remove(listener);
+	}
+
+	@Override
+	public void release(EventListener listener) {
+		released.add(listener);  // before the queue is removed, so it cannot be created again
+		var queue = queues.remove(listener);
+		if(queue != null)
+			queue.release();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		queues.keySet().forEach(this::release);
+		if(ownedExecutor != null)
+			ownedExecutor.shutdown();
+	}
+
+	/** number of events discarded or coalesced away because a listener's queue was full */
+	public long getDroppedEventCount() {
+		return droppedEvents.get();
+	}
+
+	/** events waiting to be delivered to one listener */
+	private final class ListenerQueue implements Runnable {
+		private final EventListener listener;
+		private final ArrayDeque<Event> events = new ArrayDeque<>();
+		// access to the fields below must be protected by this queue's monitor
+		private boolean scheduled = false;
+		private boolean released = false;
+
+		private ListenerQueue(EventListener listener) {
+			this.listener = listener;
+		}
+
+		void offer(Event event) {
+			boolean schedule;
+			synchronized(this) {
+				if(released || (events.size() >= capacity && !makeRoom(event)))
+					return;
+				events.addLast(event);
+				schedule = !scheduled;
+				scheduled = true;
+			}
+			if(schedule && !schedule())
+				run();  // still marked scheduled, so no other thread drains it meanwhile
+		}
+
+		/** hands this queue to the executor to be drained.
+		 * @return false if the executor refused it */
+		private boolean schedule() {
+			try {
+				executor.execute(this);
+				return true;
+			} catch(RejectedExecutionException e) {
+				logger.log(Level.FINE, "executor refused to drain events for " + listener + ", draining in place", e);
+				return false;
+			}
+		}
+
+		/** applies the overflow policy to a full queue.
+		 * @return true if the event should still be appended */
+		private boolean makeRoom(Event event) {
+			switch(policy) {
+				case BLOCK:
+					while(events.size() >= capacity && !released) {
+						try {
+							wait();
+						} catch(InterruptedException e) {
+							Thread.currentThread().interrupt();
+							droppedEvents.incrementAndGet();
+							return false;
+						}
+					}
+					return !released;
+				case COALESCE:
+					var key = coalescingKey.apply(event);
+					if(key != null) {
+						for(var it = events.iterator(); it.hasNext(); ) {
+							if(key.equals(coalescingKey.apply(it.next()))) {
+								it.remove();
+								droppedEvents.incrementAndGet();
+								return true;
+							}
+						}
+					}
+					return dropOldest();  // nothing to coalesce with
+				case DROP_OLDEST:
+				default:
+					return dropOldest();
+			}
+		}
+
+		private boolean dropOldest() {
+			events.pollFirst();
+			droppedEvents.incrementAndGet();
+			return true;
+		}
+
+		synchronized void release() {
+			released = true;
+			events.clear();
+			notifyAll();
+		}
+
+		@Override
+		public void run() {
+			for(int delivered = 0; ; delivered++) {
+				Event event;
+				synchronized(this) {
+					if(delivered == DRAIN_BATCH && !events.isEmpty()) {
+						if(schedule())
+							return;  // give other listeners a turn on this thread
+						delivered = 0;  // refused, so carry on here
+					}
+					event = events.pollFirst();
+					if(event == null) {
+						scheduled = false;
+						return;
+					}
+					notifyAll(); // wake dispatchers blocked on a full queue
+				}
+				try {
+					listener.accept(event);
+				} catch(RuntimeException e) {
+					logger.log(Level.WARNING, "event listener failed to handle " + event, e);
+				}
+			}
+		}
+	}
+}
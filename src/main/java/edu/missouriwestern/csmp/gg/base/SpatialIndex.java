@@ -0,0 +1,282 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/** finds the entities standing on tiles of a {@link Board} near a point.
+ * Entities held directly by a tile are kept in a grid of square cells, each cell holding its entities in
+ * primitive arrays, so queries only look at the cells overlapping the area asked about and hand entity
+ * IDs to a callback without copying anything. Entities held inside other entities are not indexed.
+ * <p>
+ * The index is kept up to date by {@link Game#moveEntity(Entity, Container)}.
+ * Each cell is guarded by one of a fixed set of read-write lock stripes, so moves in different parts of
+ * the board do not wait for each other, and a query holds a cell's stripe only while it looks at that cell.
+ * An entity moving between cells leaves one and enters the other while both are locked, but a query
+ * spanning several cells sees each cell as it was when it got there, so an entity moving during the query
+ * may be reported at both its old and new tiles, or at neither. Callbacks run while a cell is locked, so
+ * they must not move entities on this board. Get the index for a board with {@link Board#getSpatialIndex()}.
+ */
+public final class SpatialIndex {
+	public static final int CELL_SIZE = 8;  // width and height of a cell, in tiles
+	private static final int STRIPES = 64;  // must be a power of two
+
+	/** the entities standing in one cell, in no particular order */
+	private static final class Cell {
+		int size;
+		int[] ids = new int[4];
+		int[] columns = new int[4];
+		int[] rows = new int[4];
+
+		void add(int id, int column, int row) {
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				columns = Arrays.copyOf(columns, size * 2);
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			ids[size] = id;
+			columns[size] = column;
+			rows[size] = row;
+			size++;
+		}
+
+		int indexOf(int id) {
+			for(int i = 0; i < size; i++)
+				if(ids[i] == id)
+					return i;
+			return -1;
+		}
+
+		/** removes the entity at index by moving the last one into its place */
+		void removeAt(int index) {
+			size--;
+			ids[index] = ids[size];
+			columns[index] = columns[size];
+			rows[index] = rows[size];
+		}
+	}
+
+	private final int cellColumns;
+	private final int cellRows;
+	private final Cell[] cells;  // created when an entity first enters them; guarded by their stripes
+	private final ReadWriteLock[] stripes = new ReadWriteLock[STRIPES];
+	private final Map<Integer,Integer> cellOfEntity = new ConcurrentHashMap<>();  // entity ID -> cell
+	// per-thread scratch for nearest-neighbour searches
+	private final ThreadLocal<long[]> distances = ThreadLocal.withInitial(() -> new long[16]);
+
+	SpatialIndex(int width, int height) {
+		this.cellColumns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+		this.cellRows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+		this.cells = new Cell[cellColumns * cellRows];
+		for(int i = 0; i < STRIPES; i++)
+			stripes[i] = new ReentrantReadWriteLock();
+	}
+
+	/** records that ent now stands on the tile at column and row.
+	 * Calls for the same entity must not overlap; {@link ContainmentIndex} makes them under its stripe. */
+	void put(Entity ent, int column, int row) {
+		int id = ent.getID();
+		int to = cellOf(column, row);
+		var from = cellOfEntity.get(id);
+		if(from == null || from == to) {
+			var lock = stripe(to).writeLock();
+			lock.lock();
+			try {
+				var cell = cell(to);
+				int index = from == null ? -1 : cell.indexOf(id);
+				if(index < 0) {
+					cell.add(id, column, row);
+				} else {  // same cell, so only the position changes
+					cell.columns[index] = column;
+					cell.rows[index] = row;
+				}
+			} finally {
+				lock.unlock();
+			}
+		} else {
+			// lock both cells, in stripe order, so the entity is never seen missing from both
+			Lock first = stripe(from).writeLock(), second = stripe(to).writeLock();
+			if((from & (STRIPES - 1)) > (to & (STRIPES - 1))) {
+				var swap = first;
+				first = second;
+				second = swap;
+			}
+			first.lock();
+			if(second != first)
+				second.lock();
+			try {
+				var old = cells[from];
+				old.removeAt(old.indexOf(id));
+				cell(to).add(id, column, row);
+			} finally {
+				if(second != first)
+					second.unlock();
+				first.unlock();
+			}
+		}
+		cellOfEntity.put(id, to);
+	}
+
+	/** forgets ent, which no longer stands on a tile of this board */
+	void remove(Entity ent) {
+		var from = cellOfEntity.remove(ent.getID());
+		if(from == null)
+			return;
+		var lock = stripe(from).writeLock();
+		lock.lock();
+		try {
+			var cell = cells[from];
+			cell.removeAt(cell.indexOf(ent.getID()));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** returns a cell, creating it if needed; its stripe must be write locked */
+	private Cell cell(int index) {
+		var cell = cells[index];
+		if(cell == null)
+			cells[index] = cell = new Cell();
+		return cell;
+	}
+
+	private ReadWriteLock stripe(int cell) {
+		return stripes[cell & (STRIPES - 1)];
+	}
+
+	private int cellOf(int column, int row) {
+		return row / CELL_SIZE * cellColumns + column / CELL_SIZE;
+	}
+
+	/** number of entities standing on tiles of this board */
+	public int size() {
+		return cellOfEntity.size();
+	}
+
+	/** applies action to the ID of every entity standing within the rectangle of tiles whose top left
+	 * corner is at column and row */
+	public void forEachInRectangle(int column, int row, int width, int height, IntConsumer action) {
+		int lastColumn = column + width - 1, lastRow = row + height - 1;
+		int fromX = clamp(column, cellColumns), toX = clamp(lastColumn, cellColumns);
+		int fromY = clamp(row, cellRows), toY = clamp(lastRow, cellRows);
+		for(int cy = fromY; cy <= toY; cy++) {
+			for(int cx = fromX; cx <= toX; cx++) {
+				int index = cy * cellColumns + cx;
+				var lock = stripe(index).readLock();
+				lock.lock();
+				try {
+					var cell = cells[index];
+					for(int i = 0, size = cell == null ? 0 : cell.size; i < size; i++)
+						if(cell.columns[i] >= column && cell.columns[i] <= lastColumn
+								&& cell.rows[i] >= row && cell.rows[i] <= lastRow)
+							action.accept(cell.ids[i]);
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/** applies action to the ID of every entity standing no more than radius tiles, in a straight line,
+	 * from the tile at column and row */
+	public void forEachInRange(int column, int row, int radius, IntConsumer action) {
+		long radiusSquared = (long)radius * radius;
+		int fromX = clamp(column - radius, cellColumns), toX = clamp(column + radius, cellColumns);
+		int fromY = clamp(row - radius, cellRows), toY = clamp(row + radius, cellRows);
+		for(int cy = fromY; cy <= toY; cy++) {
+			for(int cx = fromX; cx <= toX; cx++) {
+				int index = cy * cellColumns + cx;
+				var lock = stripe(index).readLock();
+				lock.lock();
+				try {
+					var cell = cells[index];
+					for(int i = 0, size = cell == null ? 0 : cell.size; i < size; i++)
+						if(distanceSquared(cell, i, column, row) <= radiusSquared)
+							action.accept(cell.ids[i]);
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/** returns the number of entities standing no more than radius tiles, in a straight line, from the tile
+	 * at column and row */
+	public int countInRange(int column, int row, int radius) {
+		int[] count = {0};
+		forEachInRange(column, row, radius, id -> count[0]++);
+		return count[0];
+	}
+
+	/** finds the entities standing nearest to the tile at column and row, nearest first.
+	 * @param nearest filled with the IDs of up to nearest.length entities
+	 * @return number of IDs written to nearest, which is less than its length only if there are fewer
+	 * entities on the board
+	 */
+	public int findNearest(int column, int row, int[] nearest) {
+		int k = nearest.length;
+		if(k == 0)
+			return 0;
+		var best = distances.get();
+		if(best.length < k)
+			distances.set(best = new long[Math.max(k, best.length * 2)]);
+		int found = 0;
+		int homeX = clamp(column, cellColumns), homeY = clamp(row, cellRows);
+		int maxRing = Math.max(Math.max(homeX, cellColumns - 1 - homeX), Math.max(homeY, cellRows - 1 - homeY));
+		for(int ring = 0; ring <= maxRing; ring++) {
+			// every cell in this ring is at least this far from the query point
+			long reach = (long)Math.max(0, (ring - 1) * CELL_SIZE + 1);
+			if(found == k && reach * reach > best[k - 1])
+				break;
+			for(int cy = homeY - ring; cy <= homeY + ring; cy++) {
+				if(cy < 0 || cy >= cellRows)
+					continue;
+				boolean edge = cy == homeY - ring || cy == homeY + ring;
+				for(int cx = homeX - ring; cx <= homeX + ring; cx += edge ? 1 : 2 * ring) {
+					if(cx < 0 || cx >= cellColumns)
+						continue;
+					int index = cy * cellColumns + cx;
+					var lock = stripe(index).readLock();
+					lock.lock();
+					try {
+						var cell = cells[index];
+						for(int i = 0, size = cell == null ? 0 : cell.size; i < size; i++)
+							found = offer(nearest, best, found, cell.ids[i], distanceSquared(cell, i, column, row));
+					} finally {
+						lock.unlock();
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/** inserts an entity into the sorted list of the nearest found so far, if it is near enough */
+	private static int offer(int[] nearest, long[] best, int found, int id, long distance) {
+		int k = nearest.length;
+		if(found == k && distance >= best[k - 1])
+			return found;
+		int i = found == k ? k - 1 : found++;
+		for(; i > 0 && best[i - 1] > distance; i--) {
+			best[i] = best[i - 1];
+			nearest[i] = nearest[i - 1];
+		}
+		best[i] = distance;
+		nearest[i] = id;
+		return found;
+	}
+
+	private static long distanceSquared(Cell cell, int i, int column, int row) {
+		long dx = cell.columns[i] - column, dy = cell.rows[i] - row;
+		return dx * dx + dy * dy;
+	}
+
+	/** cell coordinate holding tile coordinate, clamped to the grid */
+	private static int clamp(int coordinate, int cells) {
+		return Math.min(cells - 1, Math.max(0, Math.floorDiv(coordinate, CELL_SIZE)));
+	}
+}
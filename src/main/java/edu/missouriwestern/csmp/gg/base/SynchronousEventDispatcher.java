@@ -0,0 +1,15 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.Collection;
+
+/** delivers every event to every listener on the thread that produced it.
+ * This is the default dispatcher for a {@link Game}; a slow listener delays whoever issued the event.
+ */
+public class SynchronousEventDispatcher implements EventDispatcher {
+
+	@Override
+	public void dispatch(Event event, Collection<EventListener> listeners) {
+		for(var listener : listeners)
+			listener.accept(event);
+	}
+}
@@ -0,0 +1,269 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** fixed-timestep game loop for a {@link Game}.
+ * Every tick, the registered {@link TickSystem}s are run in the order they were added, followed by the
+ * tasks due at that tick and then as many deferred tasks as fit in what remains of the tick's budget.
+ * The events of a tick are held back and coalesced as in a {@link Game#batch(Runnable) batch}, and published
+ * together when it ends, but other threads may go on changing the game while a tick runs; systems and tasks
+ * needing the game to themselves can start a batch of their own. Delayed tasks are kept in a {@link TimingWheel}, so scheduling one costs the same however far
+ * ahead it is due.
+ * <p>
+ * {@link #start()} runs ticks on a background thread, paced by {@link Game#getGameTime()}: if a tick
+ * overruns, the ticks missed are run back to back to catch up, up to {@value #MAX_CATCH_UP} at a time.
+ * For deterministic runs, such as tests, do not start the scheduler; call {@link #runTicks(int)} instead,
+ * and give the game {@link #getTickTime()} as its time source so that game time advances exactly one tick
+ * length per tick.
+ * <p>
+ * Tasks and systems may be added from any thread. Systems and tasks are only ever run on one thread
+ * at a time.
+ */
+public class TickScheduler {
+	private static Logger logger = Logger.getLogger(TickScheduler.class.getCanonicalName());
+
+	public static final long DEFAULT_TICK_MILLIS = 50;
+	private static final int MAX_CATCH_UP = 10;  // most ticks run back to back before giving up on missed ticks
+
+	/** a task waiting to be run at a particular tick */
+	public static final class Task {
+		final Runnable action;
+		final long period;  // ticks between runs, or 0 to run once
+		long due;
+		private volatile boolean cancelled;
+
+		private Task(Runnable action, long due, long period) {
+			this.action = action;
+			this.due = due;
+			this.period = period;
+		}
+
+		/** stops this task from running again */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	private final Game game;
+	private final List<TickSystem> systems = new CopyOnWriteArrayList<>();
+	private final TimingWheel wheel = new TimingWheel(0);
+	private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<>();  // not yet in the wheel
+	private final ConcurrentLinkedQueue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+	private final ArrayDeque<Task> expired = new ArrayDeque<>();
+	private volatile long tickMillis = DEFAULT_TICK_MILLIS;
+	private volatile long tick = 0;
+	private ScheduledExecutorService loop;
+	private ScheduledFuture<?> running;
+	private long firstTickTime;  // game time at which the loop's tick 0 started
+
+	// budget accounting, written only while running a tick
+	private volatile long lastTickNanos;
+	private volatile long maxTickNanos;
+	private volatile long overruns;
+	private volatile long skippedTicks;
+
+	TickScheduler(Game game) {
+		this.game = game;
+	}
+
+	/** length of a tick in milliseconds of game time */
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/** changes the length of a tick, which is also its time budget.
+	 * @throws IllegalStateException if the loop is running
+	 */
+	public synchronized void setTickMillis(long tickMillis) {
+		if(running != null)
+			throw new IllegalStateException("tick length cannot change while the game loop is running");
+		if(tickMillis <= 0)
+			throw new IllegalArgumentException("tick length must be positive: " + tickMillis);
+		this.tickMillis = tickMillis;
+	}
+
+	/** number of the last tick run */
+	public long getTick() {
+		return tick;
+	}
+
+	/** time, in milliseconds, covered by the ticks run so far.
+	 * Pass getTickTime as a {@link Game#setTimeSource time source} to run a game on tick time alone. */
+	public long getTickTime() {
+		return tick * tickMillis;
+	}
+
+	/** adds a system to be run every tick, after the systems already added */
+	public void addSystem(TickSystem system) {
+		systems.add(system);
+	}
+
+	public void removeSystem(TickSystem system) {
+		systems.remove(system);
+	}
+
+	/** runs action once, at the start of the tick delayTicks ticks after the current one */
+	public Task schedule(Runnable action, long delayTicks) {
+		return enqueue(new Task(action, tick + Math.max(1, delayTicks), 0));
+	}
+
+	/** runs action every periodTicks ticks, first delayTicks ticks after the current one */
+	public Task scheduleRepeating(Runnable action, long delayTicks, long periodTicks) {
+		if(periodTicks <= 0)
+			throw new IllegalArgumentException("period must be positive: " + periodTicks);
+		return enqueue(new Task(action, tick + Math.max(1, delayTicks), periodTicks));
+	}
+
+	/** runs action during the next tick that has time left in its budget.
+	 * Deferred actions are run in the order they were deferred, after the systems and scheduled tasks. */
+	public void defer(Runnable action) {
+		deferred.add(action);
+	}
+
+	private Task enqueue(Task task) {
+		incoming.add(task);
+		return task;
+	}
+
+	/** starts running ticks on a background thread, in step with the game's time */
+	public synchronized void start() {
+		if(running != null)
+			return;
+		loop = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "game-loop");
+			thread.setDaemon(true);
+			return thread;
+		});
+		firstTickTime = game.getGameTime() - getTickTime();
+		running = loop.scheduleAtFixedRate(this::catchUp, 0, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/** stops running ticks once the current one finishes */
+	public synchronized void stop() {
+		if(running == null)
+			return;
+		running.cancel(false);
+		loop.shutdown();
+		running = null;
+		loop = null;
+	}
+
+	public synchronized boolean isRunning() {
+		return running != null;
+	}
+
+	/** runs the ticks due by the current game time */
+	private void catchUp() {
+		try {
+			long target = (game.getGameTime() - firstTickTime) / tickMillis;
+			for(int i = 0; tick < target && i < MAX_CATCH_UP; i++)
+				runTick();
+			if(tick < target) {  // too far behind, so the missed ticks are dropped
+				skippedTicks += target - tick;
+				firstTickTime += (target - tick) * tickMillis;
+				logger.warning("game loop fell " + (target - tick) + " ticks behind; skipping them");
+			}
+		} catch(RuntimeException e) {
+			logger.log(Level.SEVERE, "error running tick " + tick, e);
+		}
+	}
+
+	/** runs ticks immediately on this thread, without regard to time. Used to step a game deterministically.
+	 * @throws IllegalStateException if the loop is running
+	 */
+	public synchronized void runTicks(int ticks) {
+		if(running != null)
+			throw new IllegalStateException("cannot step ticks while the game loop is running");
+		for(int i = 0; i < ticks; i++)
+			runTick();
+	}
+
+	private synchronized void runTick() {
+		long started = System.nanoTime();
+		long budget = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		game.coalesceEvents(() -> {
+			for(Task task; (task = incoming.poll()) != null; ) {
+				if(task.due <= tick)
+					task.due = tick + 1;  // scheduled while the previous tick was running
+				wheel.add(task);
+			}
+			tick++;
+			for(var system : systems) {
+				try {
+					system.tick(tick);
+				} catch(RuntimeException e) {
+					logger.log(Level.SEVERE, "error in tick system at tick " + tick, e);
+				}
+			}
+			wheel.advance(expired::add);
+			for(Task task; (task = expired.poll()) != null; ) {
+				if(task.isCancelled())
+					continue;
+				run(task.action);
+				if(task.period > 0 && !task.isCancelled()) {
+					task.due = tick + task.period;
+					wheel.add(task);
+				}
+			}
+			for(Runnable action; System.nanoTime() - started < budget && (action = deferred.poll()) != null; )
+				run(action);
+		});
+		long elapsed = System.nanoTime() - started;
+		lastTickNanos = elapsed;
+		if(elapsed > maxTickNanos)
+			maxTickNanos = elapsed;
+		if(elapsed > budget)
+			overruns++;
+	}
+
+	private void run(Runnable action) {
+		try {
+			action.run();
+		} catch(RuntimeException e) {
+			logger.log(Level.SEVERE, "error in task at tick " + tick, e);
+		}
+	}
+
+	/** time, in nanoseconds, the last tick took to run */
+	public long getLastTickNanos() {
+		return lastTickNanos;
+	}
+
+	/** longest time, in nanoseconds, any tick took to run */
+	public long getMaxTickNanos() {
+		return maxTickNanos;
+	}
+
+	/** number of ticks that took longer than their budget of one tick length */
+	public long getOverrunCount() {
+		return overruns;
+	}
+
+	/** number of ticks skipped because the loop fell too far behind */
+	public long getSkippedTickCount() {
+		return skippedTicks;
+	}
+
+	/** number of deferred actions waiting for a tick with time to spare */
+	public int getDeferredCount() {
+		return deferred.size();
+	}
+
+	/** number of scheduled tasks waiting to be run */
+	public int getScheduledCount() {
+		return incoming.size() + wheel.size();
+	}
+}
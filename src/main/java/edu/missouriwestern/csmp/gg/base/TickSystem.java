@@ -0,0 +1,11 @@
+package edu.missouriwestern.csmp.gg.base;
+
+/** part of a game, such as NPC behavior or timed effects, that is updated every tick.
+ * See {@link TickScheduler#addSystem(TickSystem)}.
+ */
+@FunctionalInterface
+public interface TickSystem {
+
+	/** updates this system for the specified tick, counting from 1 */
+	public void tick(long tick);
+}
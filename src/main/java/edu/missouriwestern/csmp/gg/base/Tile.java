@@ -1,6 +1,5 @@
 package edu.missouriwestern.csmp.gg.base;
 
-import com.google.gson.GsonBuilder;
 import edu.missouriwestern.csmp.gg.base.events.TileStateUpdateEvent;
 
 import java.util.HashMap;
@@ -55,6 +54,9 @@ public final class Tile implements Container, HasProperties {
 	@Deprecated // use Tile class names for types
 	public String getType() { return type; }
 
+	/** the tile's type, for writing out the board within this package */
+	String getTypeName() { return type; }
+
 	/**
 	 * Return the {@link Board} associated with this tile
 	 * @return associated Board
@@ -68,6 +70,7 @@ public final class Tile implements Container, HasProperties {
 
 	@Override
 	public void setProperty(String key, String value) {
+		board.tileModified(this);
 		properties.put(key, value);
 		board.accept(new TileStateUpdateEvent(this));
 	}
@@ -76,15 +79,7 @@ public final class Tile implements Container, HasProperties {
 	 */
 	@Override
 	public String toString() {
-		var gsonBuilder = new GsonBuilder();
-		var gson = gsonBuilder.create();
-		var m = new HashMap<String,Object>();
-		m.put("row", getRow());
-		m.put("column", getColumn());
-		m.put("board", getBoard().getName());
-		m.put("type", type);
-		m.put("properties", properties);
-		return gson.toJson(m);
+		return JsonSerialization.toJson(this);
 	}
 
 }
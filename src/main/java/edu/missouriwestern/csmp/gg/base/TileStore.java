@@ -0,0 +1,22 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.stream.Stream;
+
+/** holds the tiles of a {@link Board} by column and row.
+ * {@link DenseTileStore} keeps every tile; {@link ChunkedTileStore} creates them a chunk at a time.
+ */
+interface TileStore {
+
+	/** returns the tile at column and row, which are within the board, or null if there is none */
+	Tile get(int column, int row);
+
+	/** returns every tile on the board */
+	Stream<Tile> stream();
+
+	/** returns the type of the tile at column and row, which are within the board, without creating the
+	 * tile, or null if there is none */
+	String getType(int column, int row);
+
+	/** called when the properties of tile are set, so that the change is not lost */
+	default void modified(Tile tile) { }
+}
@@ -0,0 +1,89 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** hierarchical timing wheel holding tasks due at particular ticks.
+ * Level l has 64 slots, each holding the tasks due in one block of 64<sup>l</sup> ticks, so scheduling and
+ * expiring a task take constant time however far ahead it is due. When the current tick reaches the start
+ * of a block, the tasks in that block's slot are spread over the level below, until they reach level 0,
+ * whose slots hold single ticks. Tasks due more than 64<sup>4</sup> ticks ahead wait in an overflow list.
+ * <p>
+ * Not thread-safe; a {@link TickScheduler} only uses its wheel from the thread running ticks.
+ */
+final class TimingWheel {
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+	private static final long HORIZON = 1L << (SLOT_BITS * LEVELS);
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private final List<TickScheduler.Task>[][] slots = new List[LEVELS][SLOTS];
+	private final List<TickScheduler.Task> overflow = new ArrayList<>();
+	private long now;
+	private int size;
+
+	TimingWheel(long now) {
+		this.now = now;
+	}
+
+	/** the last tick advanced to */
+	long now() {
+		return now;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** adds task, which must be due after the current tick */
+	void add(TickScheduler.Task task) {
+		assert task.due > now;
+		place(task);
+		size++;
+	}
+
+	private void place(TickScheduler.Task task) {
+		long delay = task.due - now;
+		if(delay >= HORIZON) {
+			overflow.add(task);
+			return;
+		}
+		int level = 0;
+		while(delay >= 1L << (SLOT_BITS * (level + 1)))
+			level++;
+		int slot = (int)(task.due >>> (SLOT_BITS * level)) & SLOT_MASK;
+		var list = slots[level][slot];
+		if(list == null)
+			list = slots[level][slot] = new ArrayList<>();
+		list.add(task);
+	}
+
+	/** moves to the next tick, passing every task due at it to expired */
+	void advance(Consumer<TickScheduler.Task> expired) {
+		now++;
+		if((now & (HORIZON - 1)) == 0 && !overflow.isEmpty()) {
+			var waiting = new ArrayList<>(overflow);
+			overflow.clear();
+			waiting.forEach(this::place);
+		}
+		for(int level = LEVELS - 1; level > 0; level--) {
+			if((now & ((1L << (SLOT_BITS * level)) - 1)) != 0)
+				continue;  // not at the start of a block at this level
+			int slot = (int)(now >>> (SLOT_BITS * level)) & SLOT_MASK;
+			var cascading = slots[level][slot];
+			if(cascading != null && !cascading.isEmpty()) {
+				slots[level][slot] = null;
+				cascading.forEach(this::place);
+			}
+		}
+		var due = slots[0][(int)now & SLOT_MASK];
+		if(due != null && !due.isEmpty()) {
+			slots[0][(int)now & SLOT_MASK] = null;
+			size -= due.size();
+			due.forEach(expired);
+		}
+	}
+}
@@ -0,0 +1,362 @@
+package edu.missouriwestern.csmp.gg.base;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** {@link DataStore} that caches another store and saves to it in the background.
+ * Saves return at once: the object is queued, and queued objects are saved to the underlying store by a
+ * background thread, in a single {@link DataStore#saveAll(Collection)}, once enough have built up or a
+ * flush interval has passed. An object saved again before it is written is only written once, with its
+ * properties as they are at that time. Changes queued with {@link #saveChanges(HasProperties, Map)} are
+ * merged the same way and written with a single {@link DataStore#saveAllChanges(Map)}.
+ * <p>
+ * Entity properties loaded or saved are kept in a bounded cache, so loading an entity again, or loading
+ * one that is still queued, does not reach the underlying store. Players are always loaded from the
+ * underlying store, unless queued. Entities expected to be loaded soon can be read
+ * into the cache ahead of time with {@link #prefetch(Collection)}. Search results are cached until the
+ * next batch of saves is written; searches do not see saves that are still queued. Properties read from the
+ * underlying store are only cached if no save of the same object was queued while they were being read.
+ * <p>
+ * The underlying store is only used by one thread at a time, so it need not be thread-safe.
+ */
+public class WriteBehindDataStore implements DataStore, Closeable {
+	private static Logger logger = Logger.getLogger(WriteBehindDataStore.class.getCanonicalName());
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+	public static final int DEFAULT_CACHE_SIZE = 10_000;
+	private static final int VERSION_STRIPES = 1024;  // must be a power of two
+
+	private final DataStore delegate;
+	private final int batchSize;
+	private final Map<String,HasProperties> pending = new ConcurrentHashMap<>();
+	private final Map<String,PendingChanges> pendingChanges = new ConcurrentHashMap<>();
+	private final Cache<String,Map<String,String>> cache;
+	private final Cache<Map<?,?>,ArrayList<Integer>> searches;
+	private final ScheduledExecutorService writer;
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	// bumped when a save is queued for an object whose key falls in the stripe, so loads can tell whether
+	// what they read from the underlying store may have been overtaken by a save
+	private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+	public WriteBehindDataStore(DataStore delegate) {
+		this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param delegate store objects are ultimately loaded from and saved to
+	 * @param batchSize number of queued objects that causes a write without waiting for the interval
+	 * @param flushIntervalMillis longest time, in milliseconds, a save stays queued
+	 * @param cacheSize number of objects' properties kept in the cache
+	 */
+	public WriteBehindDataStore(DataStore delegate, int batchSize, long flushIntervalMillis, int cacheSize) {
+		this.delegate = delegate;
+		this.batchSize = batchSize;
+		this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+		this.searches = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+		this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "data-store-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		writer.scheduleWithFixedDelay(this::writePending, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/** changes to one object waiting to be saved */
+	private static final class PendingChanges {
+		final HasProperties object;
+		final Map<String,String> changes = new ConcurrentHashMap<>();
+
+		PendingChanges(HasProperties object) {
+			this.object = object;
+		}
+	}
+
+	/** queues object to be saved */
+	@Override
+	public void save(HasProperties object) {
+		var key = keyOf(object);
+		pending.put(key, object);
+		pendingChanges.remove(key);  // the whole object will be saved, changes included
+		versions.incrementAndGet(versionStripe(key));
+		cache.invalidate(key);
+		requestWriteIfFull();
+	}
+
+	/** queues changes to object to be saved, merging them with any changes already queued */
+	@Override
+	public void saveChanges(HasProperties object, Map<String,String> changes) {
+		var key = keyOf(object);
+		if(pending.containsKey(key))
+			return;  // the whole object is already queued
+		pendingChanges.computeIfAbsent(key, k -> new PendingChanges(object)).changes.putAll(changes);
+		versions.incrementAndGet(versionStripe(key));
+		cache.asMap().computeIfPresent(key, (k, cached) -> {
+			var updated = new HashMap<>(cached);
+			updated.putAll(changes);
+			return updated;
+		});
+		requestWriteIfFull();
+	}
+
+	private void requestWriteIfFull() {
+		if(pending.size() + pendingChanges.size() >= batchSize && flushRequested.compareAndSet(false, true))
+			writer.execute(this::writePending);
+	}
+
+	/** sets the stored properties of object, using the queue or the cache where possible */
+	@Override
+	public void load(HasProperties object) {
+		var key = keyOf(object);
+		long version = versions.get(versionStripe(key));  // read before the queue, so no save is missed
+		var queued = pending.get(key);
+		Map<String,String> properties = queued == null ? null : queued.getProperties();
+		if(properties == null)
+			properties = cache.getIfPresent(key);
+		if(properties == null && key.startsWith("p:")) {
+			// stores recognize players by type, so they are loaded in place and not cached
+			synchronized(delegate) {
+				delegate.load(object);
+			}
+			var changes = pendingChanges.get(key);  // not written yet, so newer than what was loaded
+			if(changes != null)
+				changes.changes.forEach(object::setProperty);
+			return;
+		}
+		if(properties == null) {
+			// loaded into a stand-in, so only what the store holds is cached, not the object's defaults
+			var record = new PropertyRecord(Integer.parseInt(key.substring(2)));
+			synchronized(delegate) {
+				delegate.load(record);
+			}
+			properties = record.getLoadedProperties();
+			var changes = pendingChanges.get(key);  // not written yet, so newer than what was loaded
+			if(changes != null)
+				properties.putAll(changes.changes);
+			cacheIfUnchanged(key, properties, version);
+		}
+		if(queued != object)
+			properties.forEach((k, v) -> {
+				if(!k.equals("id"))
+					object.setProperty(k, v);
+			});
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")  // the raw Map comes from DataStore.search
+	public ArrayList<Integer> search(Map map) {
+		var query = Map.copyOf((Map<?,?>)map);
+		var ids = searches.getIfPresent(query);
+		if(ids == null) {
+			synchronized(delegate) {
+				ids = delegate.search(map);
+			}
+			searches.put(query, ids);
+		}
+		return new ArrayList<>(ids);
+	}
+
+	/** answers queries from the search cache where possible and sends the rest in one request */
+	@Override
+	public List<ArrayList<Integer>> searchAll(List<? extends Map<String,String>> queries) {
+		var results = new ArrayList<ArrayList<Integer>>(queries.size());
+		var missing = new ArrayList<Map<String,String>>();
+		for(var query : queries) {
+			var ids = searches.getIfPresent(Map.copyOf(query));
+			results.add(ids == null ? null : new ArrayList<>(ids));
+			if(ids == null)
+				missing.add(query);
+		}
+		if(!missing.isEmpty()) {
+			List<ArrayList<Integer>> found;
+			synchronized(delegate) {
+				found = delegate.searchAll(missing);
+			}
+			for(int i = 0, j = 0; i < results.size(); i++) {
+				if(results.get(i) == null) {
+					var ids = found.get(j++);
+					searches.put(Map.copyOf(queries.get(i)), ids);
+					results.set(i, new ArrayList<>(ids));
+				}
+			}
+		}
+		return results;
+	}
+
+	/** loads entities from the queue or the cache where possible and the rest in one request */
+	@Override
+	public Map<Integer,Map<String,String>> loadAll(Collection<Integer> entityIds) {
+		var loaded = new HashMap<Integer,Map<String,String>>();
+		var missing = new LinkedHashMap<Integer,Long>();  // entity ID -> version before it was looked for
+		for(var id : entityIds) {
+			var key = "e:" + id;
+			long version = versions.get(versionStripe(key));
+			var queued = pending.get(key);
+			var properties = queued == null ? cache.getIfPresent(key) : withoutId(queued.getProperties());
+			if(properties == null)
+				missing.put(id, version);
+			else loaded.put(id, new HashMap<>(properties));
+		}
+		if(!missing.isEmpty()) {
+			Map<Integer,Map<String,String>> found;
+			synchronized(delegate) {
+				found = delegate.loadAll(missing.keySet());
+			}
+			found.forEach((id, properties) -> {
+				var changes = pendingChanges.get("e:" + id);
+				if(changes != null) {
+					properties = new HashMap<>(properties);
+					properties.putAll(changes.changes);
+				}
+				cacheIfUnchanged("e:" + id, properties, missing.get(id));
+				loaded.put(id, new HashMap<>(properties));
+			});
+		}
+		return loaded;
+	}
+
+	/** returns the largest entity ID in the underlying store or the queue */
+	@Override
+	public int getMaxEntityId() {
+		int max;
+		synchronized(delegate) {
+			max = delegate.getMaxEntityId();
+		}
+		for(var object : pending.values())
+			if(object instanceof Entity)
+				max = Math.max(max, ((Entity)object).getID());
+		for(var changes : pendingChanges.values())
+			if(changes.object instanceof Entity)
+				max = Math.max(max, ((Entity)changes.object).getID());
+		return max;
+	}
+
+	/** reads the stored properties of the specified entities into the cache in the background */
+	public CompletableFuture<Void> prefetch(Collection<Integer> entityIds) {
+		var ids = List.copyOf(entityIds);
+		return CompletableFuture.runAsync(() -> {
+			var missing = new LinkedHashMap<Integer,Long>();  // entity ID -> version before it was looked for
+			for(var id : ids) {
+				var key = "e:" + id;
+				long version = versions.get(versionStripe(key));
+				if(!pending.containsKey(key) && cache.getIfPresent(key) == null)
+					missing.put(id, version);
+			}
+			Map<Integer,Map<String,String>> loaded;
+			synchronized(delegate) {
+				loaded = delegate.loadAll(missing.keySet());
+			}
+			loaded.forEach((id, properties) -> {
+				var changes = pendingChanges.get("e:" + id);  // not written yet, so newer than what was loaded
+				if(changes != null) {
+					properties = new HashMap<>(properties);
+					properties.putAll(changes.changes);
+				}
+				cacheIfUnchanged("e:" + id, properties, missing.get(id));
+			});
+		}, ForkJoinPool.commonPool());
+	}
+
+	/** writes every queued save to the underlying store, waiting until they have been written */
+	public void flush() {
+		try {
+			writer.submit(this::writePending).get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("could not flush data store", e.getCause());
+		}
+	}
+
+	/** writes every queued save and stops the background writer. The underlying store is left open. */
+	@Override
+	public void close() {
+		flush();
+		writer.shutdown();
+	}
+
+	/** caches properties read from the underlying store for key, unless a save for it has been queued since
+	 * version was read, in which case they may be older than what was saved */
+	private void cacheIfUnchanged(String key, Map<String,String> properties, long version) {
+		int stripe = versionStripe(key);
+		if(versions.get(stripe) != version)
+			return;
+		cache.put(key, properties);
+		if(versions.get(stripe) != version)  // the save may have invalidated the key before it was put
+			cache.invalidate(key);
+	}
+
+	private static int versionStripe(String key) {
+		return key.hashCode() & (VERSION_STRIPES - 1);
+	}
+
+	/** run only on the writer thread */
+	private void writePending() {
+		flushRequested.set(false);
+		if(pending.isEmpty() && pendingChanges.isEmpty())
+			return;
+		// held from dequeuing to writing, so a load that finds nothing queued reads what was written
+		synchronized(delegate) {
+			writeBatch();
+		}
+		searches.invalidateAll();
+	}
+
+	private void writeBatch() {
+		var batch = new HashMap<String,HasProperties>();
+		for(var key : List.copyOf(pending.keySet())) {
+			var object = pending.remove(key);  // dequeued before saving, so later changes are queued again
+			if(object != null)
+				batch.put(key, object);
+		}
+		var changeBatch = new HashMap<String,PendingChanges>();
+		for(var key : List.copyOf(pendingChanges.keySet())) {
+			var changes = pendingChanges.remove(key);
+			if(changes != null)
+				changeBatch.put(key, changes);
+		}
+		var changes = new HashMap<HasProperties,Map<String,String>>();
+		changeBatch.values().forEach(c -> changes.put(c.object, c.changes));
+		try {
+			if(!batch.isEmpty())
+				delegate.saveAll(batch.values());
+			if(!changes.isEmpty())
+				delegate.saveAllChanges(changes);
+		} catch(RuntimeException e) {
+			logger.log(Level.WARNING, "could not save " + (batch.size() + changes.size()) + " objects, will retry", e);
+			batch.forEach(pending::putIfAbsent);
+			changeBatch.forEach((key, c) -> {
+				if(pending.containsKey(key))
+					return;
+				var queued = pendingChanges.computeIfAbsent(key, k -> new PendingChanges(c.object));
+				c.changes.forEach(queued.changes::putIfAbsent);  // changes queued since take precedence
+			});
+		}
+	}
+
+	private static String keyOf(HasProperties object) {
+		if(object instanceof Player)
+			return "p:" + ((Player)object).getID();
+		if(object instanceof Entity)
+			return "e:" + ((Entity)object).getID();
+		var id = object.getProperties().get("id");
+		if(id == null)
+			throw new IllegalArgumentException("cannot store an object without an id: " + object);
+		return "e:" + id;
+	}
+
+	private static Map<String,String> withoutId(Map<String,String> properties) {
+		var copy = new HashMap<>(properties);
+		copy.remove("id");
+		return copy;
+	}
+}
@@ -9,12 +9,12 @@ import java.util.Map;
 /** represents a command sent by a player of the game */
 public class CommandEvent extends Event {
 
-    private String commandName;
-    private String parameterValue;
-    private String playerId;
+    private final String commandName;
+    private final String parameterValue;
+    private final String playerId;
 
     public CommandEvent(Game game, String playerId, String commandName, String parameter) {
-        super(game, createProperies(playerId, commandName, parameter));
+        super(game);
         this.commandName = commandName;
         this.parameterValue = parameter;
         this.playerId = playerId;
@@ -24,6 +24,14 @@ public class CommandEvent extends Event {
     public String getParameterValue() { return parameterValue; }
     public String getPlayerId() { return playerId; }
 
+    @Override
+    protected void addProperties(Map<String,String> m) {
+        m.put("player", playerId);
+        m.put("command", commandName);
+        m.put("parameter", parameterValue);
+    }
+
+    @Deprecated // properties are now built from the event's fields
     public static Map<String,String> createProperies(String playerId, String commandName, String parameter) {
         var m = Map.of(
                 "player", playerId,
@@ -9,15 +9,25 @@ import java.util.Map;
 /** Issued whenever a new Entity is added to the game */
 public class EntityCreationEvent extends Event {
 
-    private Entity entity;
+    private final Entity entity;
+    private final int entityId;
 
     public EntityCreationEvent(Game game, Entity ent) {
-        super(game, createProperies(ent));
+        super(game);
         this.entity = ent;
+        this.entityId = ent.getID();
     }
 
     public Entity getEntity() { return entity; }
+    public int getEntityId() { return entityId; }
 
+    @Override
+    protected void addProperties(Map<String,String> m) {
+        m.put("game", entity.getGame().getClass().getSimpleName());
+        m.put("entity", Integer.toString(entityId));
+    }
+
+    @Deprecated // properties are now built from the event's fields
     public static Map<String,String> createProperies(Entity ent) {
         var m = Map.of(
                 "game", ent.getGame().getClass().getSimpleName(),
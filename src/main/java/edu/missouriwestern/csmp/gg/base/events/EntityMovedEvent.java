@@ -10,17 +10,82 @@ public class EntityMovedEvent extends Event {
 
     private final Entity entity;
     private final Container previousContainer;
+    private final Container newContainer;
+    private final int entityId;
 
+    /** creates an event for an entity that has just moved out of previous into its current container */
     public EntityMovedEvent(Entity ent, Container previous) {
-        super(ent.getGame(),
-                createProperies(ent, previous));
+        this(ent, previous, ent.getGame().getEntityLocation(ent));
+    }
+
+    /** creates an event for an entity that has just moved out of previous into destination */
+    public EntityMovedEvent(Entity ent, Container previous, Container destination) {
+        super(ent.getGame());
+        this.entity = ent;
+        this.previousContainer = previous;
+        this.newContainer = destination;
+        this.entityId = ent.getID();
+    }
+
+    /** creates a move event reusing an existing event ID, for use when several moves are coalesced into one */
+    public EntityMovedEvent(Entity ent, Container previous, Container destination, int id) {
+        super(ent.getGame(), id);
         this.entity = ent;
         this.previousContainer = previous;
+        this.newContainer = destination;
+        this.entityId = ent.getID();
     }
 
     public Entity getEntity() { return entity; }
     public Container getPreviousContainer() { return previousContainer; }
 
+    /** returns the container the entity moved into */
+    public Container getNewContainer() { return newContainer; }
+
+    public int getEntityId() { return entityId; }
+
+    /** returns the board the entity moved from, or null if it was not on a tile */
+    public Board getBoard() {
+        return previousContainer instanceof Tile ? ((Tile)previousContainer).getBoard() : null;
+    }
+
+    /** returns the column the entity moved from, or -1 if it was not on a tile */
+    public int getColumn() {
+        return previousContainer instanceof Tile ? ((Tile)previousContainer).getColumn() : -1;
+    }
+
+    /** returns the row the entity moved from, or -1 if it was not on a tile */
+    public int getRow() {
+        return previousContainer instanceof Tile ? ((Tile)previousContainer).getRow() : -1;
+    }
+
+    /** returns the ID of the entity the moved entity was held by, or -1 if it was not held by an entity */
+    public int getContainerId() {
+        return previousContainer instanceof Entity ? ((Entity)previousContainer).getID() : -1;
+    }
+
+    @Override
+    protected void addProperties(Map<String,String> m) {
+        m.put("entity", Integer.toString(entityId));
+        if(previousContainer instanceof Tile) {
+            var tile = (Tile)previousContainer;
+            m.put("board", tile.getBoard().getName());
+            m.put("row", Integer.toString(tile.getRow()));
+            m.put("column", Integer.toString(tile.getColumn()));
+        } else if(previousContainer instanceof Entity) {
+            m.put("container", Integer.toString(((Entity)previousContainer).getID()));
+        }
+        if(newContainer instanceof Tile) {
+            var tile = (Tile)newContainer;
+            m.put("to-board", tile.getBoard().getName());
+            m.put("to-row", Integer.toString(tile.getRow()));
+            m.put("to-column", Integer.toString(tile.getColumn()));
+        } else if(newContainer instanceof Entity) {
+            m.put("to-container", Integer.toString(((Entity)newContainer).getID()));
+        }
+    }
+
+    @Deprecated // properties are now built from the event's fields
     public static Map<String,String> createProperies(Entity ent, Container previous) {
         var m = new HashMap<String,String>();
         m.put("entity", ""+ent.getID());
@@ -29,7 +94,7 @@ public class EntityMovedEvent extends Event {
             m.put("row", ""+((Tile)previous).getRow());
             m.put("column", ""+((Tile)previous).getColumn());
         } else if(previous instanceof Entity) {
-            m.put("container", ""+((Entity)ent).getID());
+            m.put("container", ""+((Entity)previous).getID());
         }
 
         return m;
@@ -14,14 +14,25 @@ public class TileStateUpdateEvent extends Event {
     private final Tile tile;
 
     public TileStateUpdateEvent(Tile tile) {
-        super(tile.getBoard().getGame(),
-                createProperies(tile.getBoard(), tile.getColumn(), tile.getRow()));
+        super(tile.getBoard().getGame());
         this.tile = tile;
     }
 
     /** returns the {@link Tile} whose status was updated */
     public Tile getTile() { return tile; }
 
+    public Board getBoard() { return tile.getBoard(); }
+    public int getColumn() { return tile.getColumn(); }
+    public int getRow() { return tile.getRow(); }
+
+    @Override
+    protected void addProperties(Map<String,String> m) {
+        m.put("board", tile.getBoard().getName());
+        m.put("column", Integer.toString(tile.getColumn()));
+        m.put("row", Integer.toString(tile.getRow()));
+    }
+
+    @Deprecated // properties are now built from the event's fields
     public static Map<String,String> createProperies(Board board, int column, int row) {
         var m = Map.of(
                 "board", board.getName(),